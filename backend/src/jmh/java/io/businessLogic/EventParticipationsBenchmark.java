@@ -0,0 +1,48 @@
+package io.businessLogic;
+
+import io.datarecords.Participation;
+import io.persistence.BenchmarkData;
+import io.persistence.ParticipationRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ParticipationLogic#getEventParticipations} for one event holding {@code participations} bets:
+ * the repository's row mapping and identity maps over a synthetic result set, without the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class EventParticipationsBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int participations;
+
+    private ParticipationLogic participationLogic;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData data = new BenchmarkData(participations, 1, 42);
+        participationLogic = new ParticipationLogic(new ParticipationRepository(data.dataSource()), null);
+    }
+
+    @Benchmark
+    public ArrayList<Participation> getEventParticipations() throws BusinessLogicException {
+        return participationLogic.getEventParticipations(1);
+    }
+}
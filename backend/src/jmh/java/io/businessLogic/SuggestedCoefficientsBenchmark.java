@@ -0,0 +1,64 @@
+package io.businessLogic;
+
+import io.datarecords.Action;
+import io.datarecords.ActionTotal;
+import io.datarecords.Event;
+import io.persistence.BenchmarkData;
+import io.persistence.EventRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link EventLogic#suggestedCoefficients} for an event holding {@code participations} bets. The
+ * repository answers from memory with the event and its action totals, so this measures the logic
+ * alone; since the totals are kept per action the time should not grow with the number of bets.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class SuggestedCoefficientsBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int participations;
+
+    private EventLogic eventLogic;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData data = new BenchmarkData(participations, 1, 42);
+        Event event = data.events().get(0);
+        Map<Integer, ActionTotal> totals = data.actionTotals(event.eventId());
+        eventLogic = new EventLogic(new EventRepository(null) {
+            @Override
+            public Event findEventById(int eventId) {
+                return event;
+            }
+
+            @Override
+            public Map<Integer, ActionTotal> getActionTotals(int eventId) {
+                return totals;
+            }
+        }, null);
+    }
+
+    @Benchmark
+    public List<Action> suggestedCoefficients() throws BusinessLogicException {
+        return eventLogic.suggestedCoefficients(1);
+    }
+}
@@ -0,0 +1,57 @@
+package io.businessLogic;
+
+import io.datarecords.User;
+import io.datarecords.Verification;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verification submissions encrypted per second: the four hashes one after another on the calling
+ * thread, against the four in parallel on a pool as {@link VerificationPipeline} does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class VerificationEncryptionBenchmark {
+    private final Verification verification = new Verification(
+            new User("alice", "alice@example.com", false, 0.0, null), "Alice", "Jansen", "111222333",
+            "NL91ABNA0417164300", "Kerkstraat 1, Amsterdam", "1011 AB", "0612345678");
+    private ExecutorService pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pool = Executors.newFixedThreadPool(4);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Benchmark
+    public Verification sequential() throws VerificationException {
+        return VerificationCenter.encryptVerificationData(verification);
+    }
+
+    @Benchmark
+    public Verification parallel() {
+        return VerificationCenter.encryptVerificationData(verification, pool).join();
+    }
+}
@@ -0,0 +1,98 @@
+package io.businessLogic;
+
+import io.datarecords.User;
+import io.datarecords.Verification;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Validations per second of {@link VerificationCenter#validate} against the previous implementation,
+ * which used {@code String.matches} and formatted the BSN, for valid data and for data where every
+ * field is invalid.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class VerificationValidationBenchmark {
+    @Param({"valid", "invalid"})
+    public String data;
+
+    private Verification verification;
+
+    @Setup
+    public void setUp() {
+        User user = new User("alice", "alice@example.com", false, 0.0, null);
+        verification = data.equals("valid")
+                ? new Verification(user, "Anne-Marie", "de Vries", "111222333", "NL91ABNA0417164300",
+                        "Kerkstraat 1, Amsterdam", "1011 AB", "0612345678")
+                : new Verification(user, "A", "B", "111222334", "NL92ABNA0417164300", "Kerk", "1011 ab", "612345678");
+    }
+
+    @Benchmark
+    public Map<String, String> current() {
+        return VerificationCenter.validate(verification);
+    }
+
+    @Benchmark
+    public boolean previous() {
+        try {
+            return Previous.validateVerificationData(verification);
+        } catch (VerificationException e) {
+            return false;
+        }
+    }
+
+    /** The validator as it was before the rewrite, including its inverted phone number check. */
+    static class Previous {
+        static boolean validateVerificationData(Verification v) throws VerificationException {
+            if (v.firstName() == null || !v.firstName().matches("^[A-Za-zÀ-ÿА-Яа-я' -]{2,50}$")) {
+                throw new VerificationException("Invalid first name");
+            }
+            if (v.lastName() == null || !v.lastName().matches("^[A-Za-zÀ-ÿА-Яа-я' -]{2,50}$")) {
+                throw new VerificationException("Invalid last name");
+            }
+            if (!String.valueOf(v.bsn()).matches("^\\d{8,9}$") || !isValidBSN(v.bsn())) {
+                throw new VerificationException("Invalid BSN");
+            }
+            if (v.iban() == null || !v.iban().matches("^NL\\d{2}[A-Z]{4}\\d{10}$")) {
+                throw new VerificationException("Invalid IBAN");
+            }
+            if (v.address() == null || !v.address().matches("^.{5,100}$")) {
+                throw new VerificationException("Invalid address");
+            }
+            if (v.postalCode() == null || !v.postalCode().matches("^\\d{4}\\s?[A-Z]{2}$")) {
+                throw new VerificationException("Invalid postal code");
+            }
+            if (v.phoneNumber() == null || v.phoneNumber().matches("^(\\+31|0)[1-9]\\d{8}$")) {
+                throw new VerificationException("Invalid Dutch phone number");
+            }
+            return true;
+        }
+
+        private static boolean isValidBSN(String bsn) {
+            int bsnInt = Integer.parseInt(bsn);
+            String bsnStr = String.format("%09d", bsnInt);
+            int total = 0;
+            for (int i = 0; i < 8; i++) {
+                total += (bsnStr.charAt(i) - '0') * (9 - i);
+            }
+            total -= (bsnStr.charAt(8) - '0');
+            return total % 11 == 0;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package io.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.datarecords.Event;
+import io.persistence.BenchmarkData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing the response bodies of the event list and of a participation list with an
+ * {@link ObjectMapper} configured the way Spring configures the controller's. Every participation
+ * carries its action, and every action its event with all of that event's actions, so the output
+ * grows much faster than the number of objects. Bytes are written to a null stream.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class JsonSerializationBenchmark {
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int participations;
+
+    private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+    private List<Event> events;
+    private Object[] eventParticipations;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkData data = new BenchmarkData(participations, Math.max(participations / 1000, 1), 42);
+        events = data.events();
+        eventParticipations = new Object[]{data.participations()};
+    }
+
+    @Benchmark
+    public void events() throws IOException {
+        mapper.writeValue(OutputStream.nullOutputStream(), events);
+    }
+
+    @Benchmark
+    public void eventParticipations() throws IOException {
+        mapper.writeValue(OutputStream.nullOutputStream(), eventParticipations);
+    }
+}
@@ -0,0 +1,182 @@
+package io.persistence;
+
+import io.datarecords.Action;
+import io.datarecords.ActionTotal;
+import io.datarecords.Event;
+import io.datarecords.Participation;
+import io.datarecords.User;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Synthetic betting data for the benchmarks: {@code events} events of three actions each, and
+ * {@code participations} bets spread round-robin over the events and randomly over their actions and
+ * over one bettor per twenty bets, who also create the events. The same seed always generates the
+ * same data.
+ *
+ * The data is available as records, as the action totals the database would keep, and as a
+ * {@link #dataSource()} whose every query returns the rows of the participation join, so the
+ * repositories' own mapping code runs without a database.
+ */
+public class BenchmarkData {
+    private static final String[] ACTIONS = {"Home wins", "Away wins", "Draw"};
+
+    private final List<Event> events = new ArrayList<>();
+    private final List<Action> actions = new ArrayList<>();
+    private final List<User> users = new ArrayList<>();
+    private final List<Participation> participations = new ArrayList<>();
+    private final Map<Integer, Map<Integer, ActionTotal>> totals = new HashMap<>();
+
+    // The participation join, column by column; row i is participation i.
+    private final int[] rowAction;
+    private final int[] rowUser;
+    private final double[] rowStake;
+
+    public BenchmarkData(int participations, int events, long seed) {
+        Random random = new Random(seed);
+        for (int u = 0; u < Math.max(participations / 20, 1); u++) {
+            users.add(new User("bettor" + u, "bettor" + u + "@example.com", u % 3 == 0, 1000, "$2a$10$hash"));
+        }
+        LocalDateTime created = LocalDateTime.of(2024, 1, 1, 12, 0);
+        for (int e = 0; e < events; e++) {
+            List<Action> eventActions = new ArrayList<>();
+            Event event = new Event("Match " + (e + 1), e + 1, 10_000, 100, Math.max(participations, 1),
+                    true, false, true, users.get(e % users.size()).username(), null, 10_000,
+                    created.plusMinutes(e), null, eventActions);
+            for (String name : ACTIONS) {
+                int actionId = actions.size() + 1;
+                double coefficient = 1.5 + random.nextInt(300) / 100.0;
+                eventActions.add(new Action(actionId, name, coefficient, null));
+                actions.add(new Action(actionId, name, coefficient, event));
+            }
+            this.events.add(event);
+            totals.put(event.eventId(), new HashMap<>());
+        }
+
+        rowAction = new int[participations];
+        rowUser = new int[participations];
+        rowStake = new double[participations];
+        for (int i = 0; i < participations; i++) {
+            int actionIndex = (i % events) * ACTIONS.length + random.nextInt(ACTIONS.length);
+            int userIndex = random.nextInt(users.size());
+            double stake = 1 + random.nextInt(100);
+            rowAction[i] = actionIndex;
+            rowUser[i] = userIndex;
+            rowStake[i] = stake;
+
+            Action action = actions.get(actionIndex);
+            this.participations.add(new Participation(action, users.get(userIndex), stake,
+                    stake * action.coefficient(), false));
+            totals.get(action.event().eventId()).merge(action.actionId(), new ActionTotal(action.actionId(), stake, 1),
+                    (a, b) -> new ActionTotal(a.actionId(), a.totalStake() + b.totalStake(), a.bettors() + 1));
+        }
+    }
+
+    public List<Event> events() {
+        return events;
+    }
+
+    public List<User> users() {
+        return users;
+    }
+
+    public List<Participation> participations() {
+        return participations;
+    }
+
+    public Map<Integer, ActionTotal> actionTotals(int eventId) {
+        return totals.get(eventId);
+    }
+
+    /**
+     * A data source whose every query, whatever its text or parameters, returns the rows of the
+     * participation join for all generated participations.
+     */
+    public DataSource dataSource() {
+        return proxy(DataSource.class, (p, method, args) -> switch (method.getName()) {
+            case "getConnection" -> proxy(Connection.class, (c, m, a) -> switch (m.getName()) {
+                case "prepareStatement" -> proxy(PreparedStatement.class, (s, sm, sa) -> switch (sm.getName()) {
+                    case "executeQuery" -> resultSet();
+                    default -> defaultValue(sm.getReturnType());
+                });
+                default -> defaultValue(m.getReturnType());
+            });
+            default -> defaultValue(method.getReturnType());
+        });
+    }
+
+    private ResultSet resultSet() {
+        int[] row = {-1};
+        return proxy(ResultSet.class, (p, method, args) -> {
+            switch (method.getName()) {
+                case "next":
+                    return ++row[0] < rowAction.length;
+                case "wasNull":
+                case "close":
+                    return defaultValue(method.getReturnType());
+                default:
+                    return column(row[0], ((String) args[0]).toLowerCase());
+            }
+        });
+    }
+
+    private Object column(int row, String column) {
+        Action action = actions.get(rowAction[row]);
+        Event event = action.event();
+        User user = users.get(rowUser[row]);
+        return switch (column) {
+            case "eventid" -> event.eventId();
+            case "event" -> event.event();
+            case "budget" -> event.budget();
+            case "stakelimit" -> event.stakeLimit();
+            case "playerlimit" -> event.playerLimit();
+            case "isopen" -> event.isOpen();
+            case "isfinished" -> event.isFinished();
+            case "ispublic" -> event.isPublic();
+            case "creator" -> event.creator();
+            case "password" -> event.password();
+            case "initialbudget" -> event.initialBudget();
+            case "timecreated" -> Timestamp.valueOf(event.timeCreated());
+            case "timefinished" -> null;
+            case "actionid" -> action.actionId();
+            case "action" -> action.action();
+            case "coefficient" -> action.coefficient();
+            case "username" -> user.username();
+            case "stake" -> rowStake[row];
+            case "potentialwin" -> rowStake[row] * action.coefficient();
+            case "haswon" -> false;
+            case "useremail" -> user.email();
+            case "userisverified" -> user.isVerified();
+            case "userbalance" -> user.balance();
+            case "userpassword" -> user.password();
+            default -> throw new IllegalArgumentException("Unknown column " + column);
+        };
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(BenchmarkData.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+}
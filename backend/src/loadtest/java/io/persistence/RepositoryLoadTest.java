@@ -0,0 +1,448 @@
+package io.persistence;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.businessLogic.EventLogic;
+import io.datarecords.Action;
+import io.datarecords.BankTransactionResult;
+import io.datarecords.BetRejection;
+import io.datarecords.Event;
+import io.datarecords.EventFilter;
+import io.datarecords.MonoBankDeposit;
+import io.datarecords.Participation;
+import io.datarecords.User;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Drives the repositories concurrently against an embedded PostgreSQL loaded with {@code script.sql}
+ * and seeded with {@code loadtest.users} users, {@code loadtest.events} events of three actions and
+ * {@code loadtest.participations} bets spread over them. Each operation then runs
+ * {@code loadtest.operations} times on {@code loadtest.threads} threads, one operation after the other:
+ * <ul>
+ *     <li>createEvent: a new event of three actions, by a rotating creator</li>
+ *     <li>addParticipation: bets on the first {@value #HOT_EVENTS} created events, so bets contend on
+ *     the same event rows as they do on a popular event</li>
+ *     <li>overdraw: one user with a balance for ten bets betting on many actions at once; exactly ten
+ *     bets may go through</li>
+ *     <li>eventListing: the first page of open events, newest first, with their actions</li>
+ *     <li>userProfile: a user, and the first page of their bets and of the events they created, as the
+ *     profile page reads them</li>
+ *     <li>hotSuggested: suggested coefficients of one event, each read on its own and then
+ *     (hotSuggestedShared) through one {@link EventLogic}, which shares a computation between concurrent
+ *     reads</li>
+ *     <li>bankIngest: bank statement batches of 100 new transactions, one in ten paid by nobody known and
+ *     one in ten by a user whose verification is still pending</li>
+ *     <li>bankReplay: the same batches again, which must change nothing</li>
+ *     <li>setFinished: settling seeded events, at most one per seeded event</li>
+ * </ul>
+ * For every operation it reports throughput, p50 and p99 latency, and the JDBC statements executed per
+ * operation.
+ *
+ * {@link #threadModes()} compares request handling on platform and on virtual threads.
+ *
+ * Run with {@code mvn -Ploadtest test}; on Java 21 with {@code mvn -Pjava21,loadtest test}.
+ */
+public class RepositoryLoadTest {
+    private static final int USERS = Integer.getInteger("loadtest.users", 1_000);
+    private static final int EVENTS = Integer.getInteger("loadtest.events", 200);
+    private static final int PARTICIPATIONS = Integer.getInteger("loadtest.participations", 20_000);
+    private static final int THREADS = Integer.getInteger("loadtest.threads", 8);
+    private static final int OPERATIONS = Integer.getInteger("loadtest.operations", 2_000);
+    private static final int HOT_EVENTS = 20;
+    private static final Duration REMOTE_WAIT = Duration.parse(System.getProperty("loadtest.remote-wait", "PT0.2S"));
+    /** Tomcat's default {@code server.tomcat.threads.max}. */
+    private static final int TOMCAT_THREADS = 200;
+    private static final String[] ACTIONS = {"Home wins", "Away wins", "Draw"};
+
+    private static EmbeddedPostgres postgres;
+    private static HikariDataSource pool;
+    private static final AtomicLong statements = new AtomicLong();
+    private static DataSource dataSource;
+
+    private interface Operation {
+        void run(int i) throws Exception;
+    }
+
+    @BeforeAll
+    public static void startDatabase() throws Exception {
+        postgres = EmbeddedPostgres.builder().start();
+        pool = new HikariDataSource();
+        pool.setJdbcUrl(postgres.getJdbcUrl("postgres", "postgres"));
+        pool.setMaximumPoolSize(THREADS);
+        dataSource = counting(pool);
+        try (Connection con = pool.getConnection(); Statement stm = con.createStatement()) {
+            stm.execute(Files.readString(Path.of("src/main/sqlScript/script.sql")));
+        }
+        seed();
+    }
+
+    @AfterAll
+    public static void stopDatabase() throws Exception {
+        if (pool != null) {
+            pool.close();
+        }
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @Test
+    public void repositoryThroughput() throws Exception {
+        EventRepository eventRepository = new EventRepository(dataSource);
+        ParticipationRepository participationRepository = new ParticipationRepository(dataSource);
+        System.out.printf("%nRepository load: %,d users, %,d events, %,d participations, %d threads, %,d operations%n",
+                USERS, EVENTS, PARTICIPATIONS, THREADS, OPERATIONS);
+        System.out.printf("%-18s %8s %7s %10s %9s %9s %8s%n",
+                "operation", "ops", "errors", "ops/s", "p50 ms", "p99 ms", "stmt/op");
+
+        List<Integer> created = new ArrayList<>();
+        run("createEvent", OPERATIONS, i -> {
+            List<Action> actions = Arrays.stream(ACTIONS).map(a -> new Action(0, a, 2.0, null)).toList();
+            Event event = eventRepository.createEvent(new Event("Load " + i, 0, 100, 50, 1_000, true, false,
+                    true, "user" + i % USERS, null, 100, null, null, actions));
+            synchronized (created) {
+                created.add(event.eventId());
+            }
+        });
+
+        int hot = Math.min(HOT_EVENTS, created.size());
+        int[][] hotActions = actionIds(created.subList(0, hot));
+        int betsBefore = count("SELECT count(*) FROM participations");
+        int bets = Math.min(OPERATIONS, hot * USERS);
+        int betErrors = run("addParticipation", bets, i -> {
+            // Bet i is the (i / hot)-th bet on its event, by a different user each time.
+            int k = i / hot;
+            Action action = new Action(hotActions[i % hot][k % ACTIONS.length], ACTIONS[k % ACTIONS.length], 2.0, null);
+            assertThat(participationRepository.addParticipation(new Participation(action,
+                    new User("user" + k, null, false, 0, null), 5, 10, false)).rejection()).isNull();
+        });
+        assertThat(count("SELECT count(*) FROM participations") - betsBefore).isEqualTo(bets - betErrors);
+
+        try (Connection con = pool.getConnection(); Statement stm = con.createStatement()) {
+            stm.executeUpdate("INSERT INTO users (username, email, balance) VALUES ('spender', 'spender@example.com', 100)");
+        }
+        int[][] seededActions = actionIds(IntStream.rangeClosed(1, EVENTS).boxed().toList());
+        User spender = new User("spender", null, false, 0, null);
+        AtomicInteger placed = new AtomicInteger();
+        int overdrawErrors = run("overdraw", Math.min(OPERATIONS, EVENTS * ACTIONS.length), i -> {
+            Action action = new Action(seededActions[i / ACTIONS.length][i % ACTIONS.length], null, 2.5, null);
+            BetRejection rejection = participationRepository.addParticipation(new Participation(action, spender, 10, 25, false)).rejection();
+            if (rejection == null) {
+                placed.incrementAndGet();
+            } else {
+                assertThat(rejection).isEqualTo(BetRejection.INSUFFICIENT_BALANCE);
+            }
+        });
+        assertThat(overdrawErrors).isZero();
+        assertThat(placed.get()).isEqualTo(10);
+        assertThat(count("SELECT balance FROM users WHERE username = 'spender'")).isZero();
+
+        EventFilter open = new EventFilter(true, false, null, null, null, true);
+        run("eventListing", OPERATIONS, i -> assertThat(eventRepository.findPage(open, null, 20, true)).isNotEmpty());
+        UserRepository userRepository = new UserRepository(dataSource);
+        run("userProfile", OPERATIONS, i -> {
+            User user = userRepository.findByUsername("user" + i % USERS);
+            participationRepository.findByUsername(user, null, 21);
+            eventRepository.findPage(new EventFilter(null, null, null, user.username(), null, true), null, 21, true);
+        });
+
+        CachingEventRepository cachingEventRepository = new CachingEventRepository(dataSource, EVENTS, Duration.ofMinutes(1));
+        EventLogic eventLogic = new EventLogic(cachingEventRepository, null);
+        int hotEvent = created.get(0);
+        // A new EventLogic per read shares nothing, as before coalescing.
+        run("hotSuggested", OPERATIONS, i -> new EventLogic(cachingEventRepository, null).suggestedCoefficients(hotEvent));
+        run("hotSuggestedShared", OPERATIONS, i -> eventLogic.suggestedCoefficients(hotEvent));
+
+        BankTransactionRepository bankTransactions = new BankTransactionRepository(dataSource);
+        int batches = Math.max(1, OPERATIONS / 10);
+        long balanceBefore = count("SELECT sum(balance)::int FROM users");
+        AtomicInteger credited = new AtomicInteger();
+        int ingestErrors = run("bankIngest", batches, i -> {
+            List<BankTransactionResult> results = bankTransactions.apply(bankBatch(i));
+            assertThat(results).hasSize(100);
+            results.forEach(r -> assertThat(r.outcome()).isNotEqualTo(BankTransactionResult.Outcome.DUPLICATE));
+            credited.addAndGet((int) results.stream()
+                    .filter(r -> r.outcome() == BankTransactionResult.Outcome.CREDITED).count());
+        });
+        int replayErrors = run("bankReplay", batches, i -> assertThat(bankTransactions.apply(bankBatch(i)))
+                .allMatch(r -> r.outcome() == BankTransactionResult.Outcome.DUPLICATE));
+        assertThat(ingestErrors + replayErrors).isZero();
+        assertThat(count("SELECT count(*) FROM bank_transactions")).isEqualTo(batches * 100);
+        assertThat(credited.get()).isEqualTo(batches * 80);
+        assertThat(count("SELECT count(*) FROM bank_transactions WHERE username IS NULL")).isEqualTo(batches * 20);
+        assertThat(count("SELECT sum(balance)::int FROM users") - balanceBefore).isEqualTo(credited.get());
+
+        int errors = run("setFinished", Math.min(OPERATIONS, EVENTS),
+                i -> eventRepository.setFinished(i + 1, ACTIONS[i % ACTIONS.length]));
+        assertThat(errors).isZero();
+        assertThat(count("SELECT count(*) FROM events WHERE isFinished")).isEqualTo(Math.min(OPERATIONS, EVENTS));
+    }
+
+    /**
+     * Serves {@code 5 * loadtest.operations} requests arriving at once, as Tomcat does: first on a pool of
+     * {@value #TOMCAT_THREADS} platform threads, then (Java 21 only) on a virtual thread per request. A
+     * request reads a popular event through a short-lived cache and the first page of a user's bets, then
+     * waits outside the database, as a request does while it calls out or writes to a slow client: not at
+     * all, and for {@code loadtest.remote-wait}. Latency counts from arrival, so it includes the time a
+     * request queued for a thread or a connection; connections are bounded by {@code loadtest.threads}.
+     */
+    @Test
+    public void threadModes() throws Exception {
+        CachingEventRepository eventRepository = new CachingEventRepository(dataSource, EVENTS, Duration.ofMillis(50));
+        ParticipationRepository participationRepository = new ParticipationRepository(dataSource);
+        boolean virtual = Runtime.version().feature() >= 21;
+        int requests = OPERATIONS * 5;
+        System.out.printf("%nThread modes: %,d requests at once, %d connections%n", requests, THREADS);
+        System.out.printf("%-18s %8s %7s %10s %9s %9s %8s%n",
+                "mode", "requests", "errors", "req/s", "p50 ms", "p99 ms", "stmt/req");
+
+        int errors = 0;
+        Operation warmUp = i -> eventRepository.findEventById(1 + i % HOT_EVENTS);
+        ExecutorService warmUpPool = Executors.newFixedThreadPool(TOMCAT_THREADS);
+        errors += serve("warm-up", warmUpPool, requests, warmUp);
+        warmUpPool.shutdown();
+        for (Duration wait : List.of(Duration.ZERO, REMOTE_WAIT)) {
+            Operation request = i -> {
+                eventRepository.findEventById(1 + i % HOT_EVENTS);
+                participationRepository.findByUsername(new User("user" + i % USERS, null, false, 0, null), null, 21);
+                Thread.sleep(wait.toMillis());
+            };
+            String waited = " +" + wait.toMillis() + "ms";
+            ExecutorService platform = Executors.newFixedThreadPool(TOMCAT_THREADS);
+            errors += serve("platform" + waited, platform, requests, request);
+            platform.shutdown();
+            if (virtual) {
+                errors += serve("virtual" + waited, new VirtualThreadTaskExecutor("request-"), requests, request);
+            }
+        }
+        if (!virtual) {
+            System.out.println("Virtual threads need Java 21, run with -Pjava21,loadtest");
+        }
+        assertThat(errors).isZero();
+    }
+
+    /**
+     * Hands requests 0 to {@code requests - 1} to {@code server} at once and prints a report line.
+     *
+     * @return the number of requests that threw
+     */
+    private static int serve(String name, Executor server, int requests, Operation request) throws InterruptedException {
+        long[] latencies = new long[requests];
+        AtomicInteger errors = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(requests);
+        long statementsBefore = statements.get();
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            int n = i;
+            server.execute(() -> {
+                try {
+                    request.run(n);
+                } catch (Exception e) {
+                    errors.incrementAndGet();
+                }
+                latencies[n] = System.nanoTime() - start;
+                done.countDown();
+            });
+        }
+        done.await(1, TimeUnit.HOURS);
+        report(name, latencies, errors.get(), System.nanoTime() - start, statementsBefore);
+        return errors.get();
+    }
+
+    /**
+     * Runs {@code operation} for 0 to {@code operations - 1} on {@link #THREADS} threads and prints a
+     * report line.
+     *
+     * @return the number of operations that threw
+     */
+    private static int run(String name, int operations, Operation operation) throws InterruptedException {
+        long[] latencies = new long[operations];
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        long statementsBefore = statements.get();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        long start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            executor.execute(() -> {
+                for (int i = next.getAndIncrement(); i < operations; i = next.getAndIncrement()) {
+                    long opStart = System.nanoTime();
+                    try {
+                        operation.run(i);
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    latencies[i] = System.nanoTime() - opStart;
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.HOURS);
+        report(name, latencies, errors.get(), System.nanoTime() - start, statementsBefore);
+        return errors.get();
+    }
+
+    private static void report(String name, long[] latencies, int errors, long elapsed, long statementsBefore) {
+        int operations = latencies.length;
+        Arrays.sort(latencies);
+        System.out.printf("%-18s %,8d %7d %,10.0f %9.2f %9.2f %8.1f%n", name, operations, errors,
+                operations * 1e9 / elapsed, percentile(latencies, 0.50) / 1e6, percentile(latencies, 0.99) / 1e6,
+                (statements.get() - statementsBefore) / (double) operations);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted.length == 0 ? 0 : sorted[(int) Math.ceil(p * sorted.length) - 1];
+    }
+
+    /**
+     * Verified users with a large balance, and one user whose verification is pending; every event created
+     * by a rotating user with three actions; bet j on event {@code j % EVENTS} by the {@code j / EVENTS}-th
+     * user, on a rotating action.
+     */
+    private static void seed() throws SQLException {
+        try (Connection con = pool.getConnection(); Statement stm = con.createStatement()) {
+            stm.executeUpdate("""
+                    INSERT INTO users (username, email, balance)
+                    SELECT 'user' || i, 'user' || i || '@example.com', 1000000 FROM generate_series(0, %d) i
+                    """.formatted(USERS - 1));
+            stm.executeUpdate("""
+                    INSERT INTO events (event, budget, stakeLimit, playerLimit, isOpen, isFinished, isPublic,
+                                        creator, initialbudget)
+                    SELECT 'Seeded ' || i, 10000, 100, 100000, true, false, true, 'user' || i %% %d, 10000
+                    FROM generate_series(1, %d) i
+                    """.formatted(USERS, EVENTS));
+            stm.executeUpdate("""
+                    INSERT INTO actions (action, coefficient, eventId)
+                    SELECT a, 2.5, e.eventId FROM events e, unnest(ARRAY['%s']) a
+                    """.formatted(String.join("', '", ACTIONS)));
+            stm.executeUpdate("""
+                    INSERT INTO participations (actionId, username, stake, potentialWin, hasWon)
+                    SELECT a.actionId, 'user' || (j / %1$d) %% %2$d, 10, 25, false
+                    FROM generate_series(0, %3$d) j
+                    JOIN actions a ON a.eventId = j %% %1$d + 1 AND a.action = (ARRAY['%4$s'])[j %% 3 + 1]
+                    ON CONFLICT DO NOTHING
+                    """.formatted(EVENTS, USERS, PARTICIPATIONS - 1, String.join("', '", ACTIONS)));
+            stm.executeUpdate("""
+                    INSERT INTO action_totals (actionId, totalStake, bettors)
+                    SELECT actionId, sum(stake), count(*) FROM participations GROUP BY actionId
+                    """);
+            stm.executeUpdate("""
+                    INSERT INTO verification (username, firstname, lastname, bsn, iban, address, postalcode, phonenumber, verified)
+                    SELECT 'user' || i, 'First' || i, 'Last' || i, '', '', '', '', '', true FROM generate_series(0, %d) i
+                    """.formatted(USERS - 1));
+            stm.execute("""
+                    INSERT INTO users (username, email) VALUES ('pending', 'pending@example.com');
+                    INSERT INTO verification (username, firstname, lastname, bsn, iban, address, postalcode, phonenumber)
+                    VALUES ('pending', 'Pending', 'Person', '', '', '', '', '');
+                    """);
+            stm.execute("ANALYZE");
+        }
+    }
+
+    /**
+     * A statement of 100 transactions of 1.00 each, ids {@code 100 * i} onwards; every tenth is paid by
+     * someone with no account.
+     */
+    private static List<MonoBankDeposit> bankBatch(int i) {
+        Instant now = Instant.now();
+        return IntStream.range(100 * i, 100 * i + 100)
+                .mapToObj(j -> new MonoBankDeposit("tx" + j, 1.0,
+                        j % 10 == 0 ? "Від: Nobody Known"
+                                : j % 10 == 5 ? "Від: Person Pending"
+                                : "Від: Last" + j % USERS + " First" + j % USERS, now))
+                .toList();
+    }
+
+    /** The action ids of every event, in the order of {@link #ACTIONS}. */
+    private static int[][] actionIds(List<Integer> eventIds) throws SQLException {
+        int[][] ids = new int[eventIds.size()][ACTIONS.length];
+        try (Connection con = pool.getConnection();
+             PreparedStatement pstm = con.prepareStatement(
+                     "SELECT eventId, action, actionId FROM actions WHERE eventId = ANY(?)")) {
+            Array array = con.createArrayOf("int4", eventIds.toArray());
+            pstm.setArray(1, array);
+            try (ResultSet rs = pstm.executeQuery()) {
+                while (rs.next()) {
+                    ids[eventIds.indexOf(rs.getInt("eventId"))][Arrays.asList(ACTIONS).indexOf(rs.getString("action"))]
+                            = rs.getInt("actionId");
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static int count(String sql) throws SQLException {
+        try (Connection con = pool.getConnection(); Statement stm = con.createStatement();
+             ResultSet rs = stm.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    /** Counts every statement execution on connections borrowed from {@code target}. */
+    private static DataSource counting(DataSource target) {
+        return proxy(DataSource.class, target, (method, connection) ->
+                method.equals("getConnection") ? countingConnection((Connection) connection) : connection);
+    }
+
+    private static Connection countingConnection(Connection target) {
+        return proxy(Connection.class, target, (method, statement) -> switch (method) {
+            case "prepareStatement" -> proxy(PreparedStatement.class, statement, RepositoryLoadTest::count);
+            case "createStatement" -> proxy(Statement.class, statement, RepositoryLoadTest::count);
+            default -> statement;
+        });
+    }
+
+    private static Object count(String method, Object result) {
+        if (method.startsWith("execute")) {
+            statements.incrementAndGet();
+        }
+        return result;
+    }
+
+    private interface ResultWrapper {
+        Object wrap(String method, Object result);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Object target, ResultWrapper wrapper) {
+        InvocationHandler handler = (p, method, args) -> {
+            try {
+                return wrapper.wrap(method.getName(), method.invoke(target, args));
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return (T) Proxy.newProxyInstance(RepositoryLoadTest.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+}
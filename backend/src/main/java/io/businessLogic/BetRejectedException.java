@@ -0,0 +1,19 @@
+package io.businessLogic;
+
+import io.datarecords.BetRejection;
+
+/**
+ * A bet that was refused by the event, the action or the bettor's balance; answered with 409.
+ */
+public class BetRejectedException extends BusinessLogicException {
+    private final BetRejection reason;
+
+    public BetRejectedException(BetRejection reason) {
+        super(reason.message());
+        this.reason = reason;
+    }
+
+    public BetRejection getReason() {
+        return reason;
+    }
+}
@@ -0,0 +1,52 @@
+package io.businessLogic;
+
+import io.datarecords.BankCredit;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polls the bank statement in the background every {@code monobank.poll-interval}, see
+ * {@link DepositLogic#ingest()}. Nodes take turns through the database, so the bank sees one request per
+ * interval however many nodes run. Does nothing without a Monobank token.
+ *
+ * Every balance change is published as an application event after it committed.
+ */
+@Component
+public class DepositIngester {
+    private final DepositLogic depositLogic;
+    private final ApplicationEventPublisher events;
+    private final ScheduledExecutorService poller;
+
+    public DepositIngester(DepositLogic depositLogic, ApplicationEventPublisher events,
+                           @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.depositLogic = depositLogic;
+        this.events = events;
+        this.poller = Executors.newSingleThreadScheduledExecutor(WorkerThreads.single("deposit-ingester", virtualThreads));
+        if (depositLogic.isConfigured()) {
+            long interval = depositLogic.getPollInterval().toMillis();
+            poller.scheduleWithFixedDelay(this::poll, 0, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        poller.shutdownNow();
+    }
+
+    private void poll() {
+        try {
+            for (BankCredit credit : depositLogic.ingest()) {
+                events.publishEvent(credit);
+            }
+        } catch (BusinessLogicException | RuntimeException e) {
+            // An exception would cancel the periodic task; the statement is read again next interval.
+            e.printStackTrace();
+        }
+    }
+}
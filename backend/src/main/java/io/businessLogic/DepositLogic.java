@@ -1,16 +1,115 @@
 package io.businessLogic;
 
+import io.datarecords.BankCredit;
+import io.datarecords.BankTransactionResult;
+import io.datarecords.IngestState;
 import io.datarecords.MonoBankDeposit;
+import io.persistence.BankTransactionRepository;
 import io.persistence.DepositRepository;
 import io.persistence.PersistenceException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Applies the bank statement to the balances, one statement request at a time. Each request reads from
+ * the high-water mark (less {@code monobank.overlap}, for transactions the bank books late) up to now;
+ * transactions read before are skipped by their id. A window holding more than
+ * {@value DepositRepository#STATEMENT_LIMIT} transactions is read newest first over several requests and
+ * only then moves the high-water mark. A page whose transactions all share the second it ends at cannot be
+ * split further, so the next page ends a second earlier.
+ */
+@Service
 public class DepositLogic {
-    private DepositRepository depositRepository;
+    /** The account {@link DepositRepository} reads: the token owner's default account. */
+    static final String ACCOUNT = "0";
+    /** The longest window the bank serves in one statement request. */
+    private static final Duration MAX_WINDOW = Duration.ofDays(31);
+    /** {@code bank.transactions} by outcome; a growing unmatched count means payments nobody receives. */
+    private static final Map<BankTransactionResult.Outcome, Counter> APPLIED = new EnumMap<>(BankTransactionResult.Outcome.class);
 
-    public DepositLogic(DepositRepository depositRepository) {
+    static {
+        for (BankTransactionResult.Outcome outcome : BankTransactionResult.Outcome.values()) {
+            APPLIED.put(outcome, Counter.builder("bank.transactions").tag("outcome", outcome.name().toLowerCase())
+                    .register(Metrics.globalRegistry));
+        }
+    }
+
+    private final DepositRepository depositRepository;
+    private final BankTransactionRepository bankTransactionRepository;
+    private final Duration pollInterval;
+    private final Duration overlap;
+
+    public DepositLogic(DepositRepository depositRepository, BankTransactionRepository bankTransactionRepository,
+                        @Value("${monobank.poll-interval:PT61S}") Duration pollInterval,
+                        @Value("${monobank.overlap:PT5M}") Duration overlap) {
         this.depositRepository = depositRepository;
+        this.bankTransactionRepository = bankTransactionRepository;
+        this.pollInterval = pollInterval;
+        this.overlap = overlap;
+    }
+
+    public boolean isConfigured() {
+        return depositRepository.isConfigured();
     }
 
+    public Duration getPollInterval() {
+        return pollInterval;
+    }
+
+    /**
+     * Reads and applies the next statement window if this node may send the request now; at most one
+     * request per {@code monobank.poll-interval} is sent across all nodes.
+     *
+     * @return the balance changes made, empty if none or if it was not this node's turn
+     */
+    public List<BankCredit> ingest() throws BusinessLogicException {
+        try {
+            IngestState state = bankTransactionRepository.claimPoll(ACCOUNT, pollInterval);
+            if (state == null) {
+                return List.of();
+            }
+            Instant windowEnd = state.windowEnd() != null ? state.windowEnd() : Instant.now();
+            Instant to = state.pageEnd() != null ? state.pageEnd() : windowEnd;
+            Instant from = state.highWater().minus(overlap);
+            if (from.isBefore(to.minus(MAX_WINDOW))) {
+                from = to.minus(MAX_WINDOW);
+            }
+            if (!from.isBefore(to)) {
+                from = to.minus(overlap);
+            }
+
+            List<MonoBankDeposit> statement = depositRepository.getStatement(from, to);
+            List<BankCredit> credits = new ArrayList<>();
+            for (BankTransactionResult result : bankTransactionRepository.apply(statement)) {
+                APPLIED.get(result.outcome()).increment();
+                if (result.outcome() == BankTransactionResult.Outcome.CREDITED) {
+                    credits.add(new BankCredit(result.transaction().id(), result.username(), result.transaction().amount()));
+                }
+            }
+            if (statement.size() >= DepositRepository.STATEMENT_LIMIT) {
+                Instant oldest = statement.stream().map(MonoBankDeposit::depositDate).min(Comparator.naturalOrder()).get();
+                if (oldest.getEpochSecond() >= to.getEpochSecond()) {
+                    // The bank includes the second at to, so a full page all booked in that second would be
+                    // read again on every poll; step past it, leaving whatever did not fit on the page.
+                    oldest = Instant.ofEpochSecond(to.getEpochSecond()).minusSeconds(1);
+                }
+                bankTransactionRepository.saveProgress(ACCOUNT, new IngestState(state.highWater(), windowEnd, oldest));
+            } else {
+                bankTransactionRepository.saveProgress(ACCOUNT, new IngestState(windowEnd, null, null));
+            }
+            return credits;
+        } catch (PersistenceException e) {
+            throw new BusinessLogicException("Failed to ingest the bank statement " + e.getMessage());
+        }
+    }
 }
@@ -1,27 +1,45 @@
 package io.businessLogic;
 
 import io.datarecords.Action;
+import io.datarecords.ActionTotal;
 import io.datarecords.Event;
+import io.datarecords.EventCursor;
+import io.datarecords.EventFilter;
+import io.datarecords.EventPage;
 import io.datarecords.Participation;
 import io.datarecords.User;
 import io.persistence.EventRepository;
 import io.persistence.PersistenceException;
-import io.persistence.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
+@Service
 public class EventLogic {
 
-    private EventRepository eventRepository;
-    public EventLogic(EventRepository eventRepository) {
+    private final EventRepository eventRepository;
+    private final UserLogic userLogic;
+    private final SingleFlight<Integer, List<Action>> suggestedReads;
+
+    @Autowired
+    public EventLogic(EventRepository eventRepository, UserLogic userLogic,
+                      @Value("${events.coalescing.freshness:PT0S}") Duration freshness) {
         this.eventRepository = eventRepository;
+        this.userLogic = userLogic;
+        this.suggestedReads = new SingleFlight<>("events.suggested", freshness);
+    }
+
+    public EventLogic(EventRepository eventRepository, UserLogic userLogic) {
+        this(eventRepository, userLogic, Duration.ZERO);
     }
     public Event createEvent(Event event) throws BusinessLogicException {
-        UserLogic ul = new UserLogic(new UserRepository());
-        User user = ul.findByUsername(event.creator());
+        User user = userLogic.findByUsername(event.creator());
         if(event.budget()<=0 || event.playerLimit()<=0){
             throw new BusinessLogicException("Invalid budget or playerLimit");
         }
@@ -43,6 +61,36 @@ public class EventLogic {
             throw new RuntimeException(e);
         }
     }
+    public EventPage getEventPage(EventFilter filter, String cursor, int size, boolean withActions) throws BusinessLogicException {
+        if (size < 1 || size > 100) {
+            throw new BusinessLogicException("Page size must be between 1 and 100");
+        }
+        EventCursor after;
+        try {
+            after = cursor == null || cursor.isBlank() ? null : EventCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new BusinessLogicException("Invalid cursor");
+        }
+        List<Event> events;
+        try {
+            events = eventRepository.findPage(filter, after, size + 1, withActions);
+        } catch (PersistenceException e) {
+            throw new BusinessLogicException("Failed to get events "+e.getMessage());
+        }
+        if (events.size() <= size) {
+            return new EventPage(events, null);
+        }
+        List<Event> page = events.subList(0, size);
+        Event last = page.get(size - 1);
+        return new EventPage(page, new EventCursor(last.timeCreated(), last.eventId()).encode());
+    }
+    public Event getEvent(int eventId) throws BusinessLogicException {
+        try {
+            return eventRepository.findEventById(eventId);
+        } catch (PersistenceException e) {
+            throw new BusinessLogicException("Failed to get event "+e.getMessage());
+        }
+    }
     public void setPrivate(int eventId, String password) throws BusinessLogicException {
         try {
             eventRepository.setPrivate(eventId, password);
@@ -72,43 +120,45 @@ public class EventLogic {
             throw new BusinessLogicException("Failed to set closed "+e.getMessage());
         }
     }
-    public void setFinished(int eventId, String winnersAction) throws BusinessLogicException {
-        try {
-            eventRepository.setFinished(eventId, winnersAction);
-        } catch (PersistenceException e) {
-            throw new BusinessLogicException("Failed to set finished "+e.getMessage());
-        }
+    public double initialBudget(int eventId) throws BusinessLogicException {
+        Event event = getEvent(eventId);
+        return event == null ? 0 : event.initialBudget();
     }
-    public double initialBudget(int eventId){
-        return getAllEvents().stream().filter(p -> p.eventId()==eventId).mapToDouble(Event::initialBudget).sum();
+    /**
+     * Concurrent calls for one event share one computation, see {@code events.coalescing.freshness}.
+     *
+     * @return the suggestions, shared between callers and unmodifiable
+     */
+    public List<Action> suggestedCoefficients(int eventId) throws BusinessLogicException {
+        return suggestedReads.get(eventId, () -> List.copyOf(computeSuggestedCoefficients(eventId)));
     }
-    public ArrayList<Action> suggestedCoefficients(int eventId) throws BusinessLogicException {
-        List<Event> events;
-        try {
-            events = eventRepository.getAll();
-        } catch (PersistenceException e) {
-            throw new BusinessLogicException("Failed to get events "+e.getMessage());
+    private ArrayList<Action> computeSuggestedCoefficients(int eventId) throws BusinessLogicException {
+        Event targetEvent = getEvent(eventId);
+        if (targetEvent == null) {
+            throw new BusinessLogicException("Event not found.");
         }
-        Event targetEvent = events.stream()
-                .filter(event -> event.eventId() == eventId)
-                .findFirst()
-                .orElseThrow(() -> new BusinessLogicException("Event not found."));
         List<Action> currentActions = targetEvent.actions();
         if (currentActions == null || currentActions.isEmpty()) {
             throw new BusinessLogicException("No stakes are made");
         }
-        Logic logic = new Logic(Logic.getRepository());
-        ArrayList<Participation> participations = logic.getParticipationLogic().getEventParticipations(eventId);
-        HashMap<Action,Double> moneyPutOnAction = new HashMap<>();
+        Map<Integer, ActionTotal> totals;
+        try {
+            totals = eventRepository.getActionTotals(eventId);
+        } catch (PersistenceException e) {
+            throw new BusinessLogicException("Failed to get stakes "+e.getMessage());
+        }
+        return suggestCoefficients(currentActions, totals);
+    }
+    static ArrayList<Action> suggestCoefficients(List<Action> currentActions, Map<Integer, ActionTotal> totals) {
         double generalSum = 0;
-        for(Action action : currentActions){
-            Double sum = participations.stream().filter(p -> p.action().actionId() == action.actionId()).mapToDouble(Participation::stake).sum();
-            generalSum += sum;
-            moneyPutOnAction.put(action, sum);
+        for (Action action : currentActions) {
+            ActionTotal total = totals.get(action.actionId());
+            generalSum += total == null ? 0 : total.totalStake();
         }
         ArrayList<Action> updatedActions = new ArrayList<>();
         for (Action action : currentActions) {
-            double actionStake = moneyPutOnAction.getOrDefault(action, 0.0);
+            ActionTotal total = totals.get(action.actionId());
+            double actionStake = total == null ? 0 : total.totalStake();
             double suggestedCoefficient;
 
             if (actionStake == 0 || generalSum == 0) {
@@ -126,9 +176,12 @@ public class EventLogic {
         }
         return updatedActions;
     }
-    public void updateCoefficient(int actionId,double coefficient) throws BusinessLogicException {
+    /**
+     * @return the id of the event the action belongs to
+     */
+    public int updateCoefficient(int actionId,double coefficient) throws BusinessLogicException {
         try {
-            eventRepository.updateCoefficient(actionId,coefficient);
+            return eventRepository.updateCoefficient(actionId,coefficient);
         } catch (PersistenceException e) {
             throw new BusinessLogicException("Coefficient is not updated "+e.getMessage());
         }
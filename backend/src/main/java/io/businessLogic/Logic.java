@@ -1,27 +1,41 @@
 package io.businessLogic;
 
-import io.persistence.Repository;
 import org.springframework.stereotype.Service;
 
 @Service
 public class Logic {
-    protected Repository repo;
-    public Logic(Repository repo) {
-        this.repo = repo;
+    private final EventLogic eventLogic;
+    private final UserLogic userLogic;
+    private final ParticipationLogic participationLogic;
+    private final DepositLogic depositLogic;
+    private final SettlementLogic settlementLogic;
+    private final ProfileLogic profileLogic;
+
+    public Logic(EventLogic eventLogic, UserLogic userLogic, ParticipationLogic participationLogic,
+                 DepositLogic depositLogic, SettlementLogic settlementLogic, ProfileLogic profileLogic) {
+        this.eventLogic = eventLogic;
+        this.userLogic = userLogic;
+        this.participationLogic = participationLogic;
+        this.depositLogic = depositLogic;
+        this.settlementLogic = settlementLogic;
+        this.profileLogic = profileLogic;
     }
     public EventLogic getEventLogic() {
-        return new EventLogic(repo.getEventRepository());
+        return eventLogic;
     }
     public UserLogic getUserLogic() {
-        return new UserLogic(repo.getUserRepository());
+        return userLogic;
     }
     public ParticipationLogic getParticipationLogic() {
-        return new ParticipationLogic(repo.getParticipationRepository());
-    }
-    public static Repository getRepository() {
-        return new Repository();
+        return participationLogic;
     }
     public DepositLogic getDepositLogic() {
-        return new DepositLogic(repo.getDepositRepository());
+        return depositLogic;
+    }
+    public SettlementLogic getSettlementLogic() {
+        return settlementLogic;
+    }
+    public ProfileLogic getProfileLogic() {
+        return profileLogic;
     }
 }
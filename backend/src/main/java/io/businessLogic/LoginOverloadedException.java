@@ -0,0 +1,10 @@
+package io.businessLogic;
+
+/**
+ * The password hashing pool is saturated; answered with 503 so clients back off instead of queueing.
+ */
+public class LoginOverloadedException extends BusinessLogicException {
+    public LoginOverloadedException(String message) {
+        super(message);
+    }
+}
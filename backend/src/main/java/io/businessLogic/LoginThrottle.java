@@ -0,0 +1,79 @@
+package io.businessLogic;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts failed logins per username and per client address. Once either reaches its limit, further
+ * attempts are refused before the user is looked up or a password is hashed, until
+ * {@code login.throttle.window} passed without a new failure. A successful login clears the
+ * username's count. Unknown usernames count against the address, so spraying names from one client
+ * is throttled as well.
+ */
+@Component
+public class LoginThrottle {
+    private final Cache<String, AtomicInteger> failuresByUser;
+    private final Cache<String, AtomicInteger> failuresByAddress;
+    private final int maxUserFailures;
+    private final int maxAddressFailures;
+    private final Duration window;
+    private final Counter throttled;
+
+    public LoginThrottle(@Value("${login.throttle.max-user-failures:5}") int maxUserFailures,
+                         @Value("${login.throttle.max-address-failures:20}") int maxAddressFailures,
+                         @Value("${login.throttle.window:PT15M}") Duration window) {
+        this.maxUserFailures = maxUserFailures;
+        this.maxAddressFailures = maxAddressFailures;
+        this.window = window;
+        this.failuresByUser = Caffeine.newBuilder().maximumSize(100_000).expireAfterWrite(window).build();
+        this.failuresByAddress = Caffeine.newBuilder().maximumSize(100_000).expireAfterWrite(window).build();
+        this.throttled = Counter.builder("login.throttled").register(Metrics.globalRegistry);
+    }
+
+    public void check(String username, String address) throws LoginThrottledException {
+        if (reached(failuresByUser, userKey(username), maxUserFailures)
+                || reached(failuresByAddress, address, maxAddressFailures)) {
+            throttled.increment();
+            throw new LoginThrottledException("Too many failed logins, try again later", window);
+        }
+    }
+
+    public void failed(String username, String address) {
+        increment(failuresByUser, userKey(username));
+        increment(failuresByAddress, address);
+    }
+
+    public void succeeded(String username) {
+        failuresByUser.invalidate(userKey(username));
+    }
+
+    private static boolean reached(Cache<String, AtomicInteger> failures, String key, int max) {
+        if (key == null) {
+            return false;
+        }
+        AtomicInteger count = failures.getIfPresent(key);
+        return count != null && count.get() >= max;
+    }
+
+    private static void increment(Cache<String, AtomicInteger> failures, String key) {
+        if (key != null) {
+            // compute() writes the entry, which restarts its expiry.
+            failures.asMap().compute(key, (k, count) -> {
+                AtomicInteger next = count == null ? new AtomicInteger() : count;
+                next.incrementAndGet();
+                return next;
+            });
+        }
+    }
+
+    private static String userKey(String username) {
+        return username == null ? null : username.toLowerCase();
+    }
+}
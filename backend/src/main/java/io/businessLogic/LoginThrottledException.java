@@ -0,0 +1,19 @@
+package io.businessLogic;
+
+import java.time.Duration;
+
+/**
+ * Too many failed logins for a username or from one address; answered with 429.
+ */
+public class LoginThrottledException extends BusinessLogicException {
+    private final Duration retryAfter;
+
+    public LoginThrottledException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -1,49 +1,74 @@
 package io.businessLogic;
 
-import io.datarecords.Event;
+import io.datarecords.BetResult;
 import io.datarecords.Participation;
 import io.persistence.EventRepository;
 import io.persistence.ParticipationRepository;
 import io.persistence.PersistenceException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.ArrayList;
-import java.util.stream.Collectors;
+import java.util.List;
 
+@Service
 public class ParticipationLogic {
 
-    private ParticipationRepository participationRepository;
+    private final ParticipationRepository participationRepository;
+    private final EventRepository eventRepository;
+    private final SingleFlight<Integer, List<Participation>> analysisReads;
 
-    public ParticipationLogic(ParticipationRepository participationRepository) {
+    @Autowired
+    public ParticipationLogic(ParticipationRepository participationRepository, EventRepository eventRepository,
+                              @Value("${events.coalescing.freshness:PT0S}") Duration freshness) {
         this.participationRepository = participationRepository;
+        this.eventRepository = eventRepository;
+        this.analysisReads = new SingleFlight<>("events.analysis", freshness);
     }
-    public void addParticipation(Participation participation) throws BusinessLogicException{
+
+    public ParticipationLogic(ParticipationRepository participationRepository, EventRepository eventRepository) {
+        this(participationRepository, eventRepository, Duration.ZERO);
+    }
+    /**
+     * Places the bet; the event, the limits and the balance are checked atomically by
+     * {@link ParticipationRepository#addParticipation}, so nothing is read beforehand.
+     *
+     * @return the id of the event the bet was placed on, as the database found it, not as the request named it
+     * @throws BetRejectedException with the reason if the event or the bettor refused the bet
+     */
+    public int addParticipation(Participation participation) throws BusinessLogicException{
+        if(participation.stake()<=0){
+            throw new BusinessLogicException("Stake cannot be less or equal to 0");
+        }
         try{
-            EventRepository eventRepository = new EventRepository();
-            Event event = eventRepository.getAll().stream().filter(event1 -> event1.eventId()==participation.action().event().eventId()).findFirst().orElse(null);
-            if (participation.user().balance() < participation.stake()) {
-                throw new BusinessLogicException("Insufficient balance to place this stake.");
+            BetResult result = participationRepository.addParticipation(participation);
+            if (result.rejection() != null) {
+                throw new BetRejectedException(result.rejection());
             }
-            if (participation.stake() > event.stakeLimit()) {
-                throw new BusinessLogicException("Stake exceeds the allowed limit for this event.\n Stake:"+
-                        participation.stake() +"\n Stake limit :" + participation.action().event().stakeLimit() +"\n User balance:"+
-                        participation.user().balance());
-            }
-            if(participation.stake()<=0){
-                throw new BusinessLogicException("Stake cannot be less or equal to 0");
-            }
-            participationRepository.addParticipation(participation);
+            eventRepository.evict(result.eventId());
+            return result.eventId();
         } catch (PersistenceException e) {
-            throw new BusinessLogicException("Stake cannot be less or equal to 0");
+            throw new BusinessLogicException("Failed to add participation "+e.getMessage());
         }
     }
+    /**
+     * The bets on an event for display. Concurrent calls for one event share one query, see
+     * {@code events.coalescing.freshness}; use {@link #getEventParticipations} to read the bets as they
+     * are now.
+     *
+     * @return the bets, shared between callers and unmodifiable
+     */
+    public List<Participation> getEventAnalysis(int eventId) throws BusinessLogicException {
+        return analysisReads.get(eventId, () -> List.copyOf(getEventParticipations(eventId)));
+    }
     public ArrayList<Participation> getEventParticipations(int eventId) throws BusinessLogicException{
-        ArrayList<Participation> participations = null;
         try {
-            participations = participationRepository.getAll();
+            return participationRepository.getByEventId(eventId);
         } catch (PersistenceException e) {
             throw new BusinessLogicException("Impossible to retrieve participations");
         }
-        return participations.stream().filter(participation -> participation.action().event().eventId()==eventId).collect(Collectors.toCollection(ArrayList::new));
 
     }
 }
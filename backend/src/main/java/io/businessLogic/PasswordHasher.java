@@ -0,0 +1,105 @@
+package io.businessLogic;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.mindrot.jbcrypt.BCrypt;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs BCrypt on a dedicated pool of {@code login.hash.threads} threads (default: one per core) instead of
+ * on request threads. At most {@code login.hash.queue-capacity} hashes wait for a thread; beyond that, or
+ * when a hash is not done within {@code login.hash.timeout}, the caller gets a
+ * {@link LoginOverloadedException} right away, so a login burst cannot occupy every request thread
+ * with CPU-bound work.
+ *
+ * Publishes {@code login.hash} (time spent hashing, tagged by operation), {@code login.hash.wait}
+ * (time queued), {@code login.hash.queue} and {@code login.hash.active} (queue depth and busy threads)
+ * and {@code login.hash.rejected}.
+ */
+@Component
+public class PasswordHasher {
+    private final ThreadPoolExecutor executor;
+    private final Duration timeout;
+    private final Timer checkTimer;
+    private final Timer hashTimer;
+    private final Timer waitTimer;
+    private final Counter rejected;
+
+    public PasswordHasher(@Value("${login.hash.threads:0}") int threads,
+                          @Value("${login.hash.queue-capacity:64}") int queueCapacity,
+                          @Value("${login.hash.timeout:PT5S}") Duration timeout) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread thread = new Thread(r, "password-hash-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.timeout = timeout;
+        this.checkTimer = Timer.builder("login.hash").tag("operation", "check").register(Metrics.globalRegistry);
+        this.hashTimer = Timer.builder("login.hash").tag("operation", "hash").register(Metrics.globalRegistry);
+        this.waitTimer = Timer.builder("login.hash.wait").register(Metrics.globalRegistry);
+        this.rejected = Counter.builder("login.hash.rejected").register(Metrics.globalRegistry);
+        Gauge.builder("login.hash.queue", executor, e -> e.getQueue().size()).register(Metrics.globalRegistry);
+        Gauge.builder("login.hash.active", executor, ThreadPoolExecutor::getActiveCount).register(Metrics.globalRegistry);
+    }
+
+    public boolean check(String password, String hash) throws LoginOverloadedException {
+        return run(checkTimer, () -> BCrypt.checkpw(password, hash));
+    }
+
+    public String hash(String password) throws LoginOverloadedException {
+        return run(hashTimer, () -> BCrypt.hashpw(password, BCrypt.gensalt()));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private <T> T run(Timer timer, Callable<T> task) throws LoginOverloadedException {
+        long queued = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                waitTimer.record(System.nanoTime() - queued, TimeUnit.NANOSECONDS);
+                return timer.recordCallable(task);
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new LoginOverloadedException("Too many logins in progress, try again shortly");
+        }
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            rejected.increment();
+            throw new LoginOverloadedException("Too many logins in progress, try again shortly");
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new LoginOverloadedException("Interrupted while waiting for the password check");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
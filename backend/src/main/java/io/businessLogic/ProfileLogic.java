@@ -0,0 +1,85 @@
+package io.businessLogic;
+
+import io.datarecords.*;
+import io.persistence.ParticipationRepository;
+import io.persistence.PersistenceException;
+import io.persistence.UserRepository;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the profile page from indexed, paginated reads: the user by primary key, their bets by
+ * (username, actionId) and their events through the creator filter of the event listing. The first page
+ * costs three statements; the next page of one list two.
+ */
+@Service
+public class ProfileLogic {
+    private final UserRepository userRepository;
+    private final ParticipationRepository participationRepository;
+    private final EventLogic eventLogic;
+
+    public ProfileLogic(UserRepository userRepository, ParticipationRepository participationRepository, EventLogic eventLogic) {
+        this.userRepository = userRepository;
+        this.participationRepository = participationRepository;
+        this.eventLogic = eventLogic;
+    }
+
+    /**
+     * Without cursors, the first page of both lists. With a cursor for only one list, the next page of that
+     * list; the other list is not read and comes back empty, without a cursor.
+     *
+     * @param participationsCursor the {@link UserProfile#participationsCursor()} of the previous page, or {@code null}
+     * @param eventsCursor the {@link UserProfile#createdEventsCursor()} of the previous page, or {@code null}
+     * @param size the page size of both lists, 1 to 100
+     */
+    public UserProfile getProfile(String username, String participationsCursor, String eventsCursor, int size) throws BusinessLogicException {
+        if (size < 1 || size > 100) {
+            throw new BusinessLogicException("Page size must be between 1 and 100");
+        }
+        boolean readParticipations = !isBlank(participationsCursor) || isBlank(eventsCursor);
+        boolean readEvents = !isBlank(eventsCursor) || isBlank(participationsCursor);
+        Integer beforeActionId;
+        try {
+            beforeActionId = isBlank(participationsCursor) ? null : Integer.valueOf(participationsCursor);
+        } catch (NumberFormatException e) {
+            throw new BusinessLogicException("Invalid cursor");
+        }
+        User user;
+        List<Participation> participations = List.of();
+        try {
+            User found = userRepository.findByUsername(username);
+            if (found == null) {
+                throw new BusinessLogicException("Unknown user " + username);
+            }
+            user = new User(found.username(), found.email(), found.isVerified(), found.balance(), null);
+            if (readParticipations) {
+                participations = participationRepository.findByUsername(user, beforeActionId, size + 1);
+            }
+        } catch (PersistenceException e) {
+            throw new BusinessLogicException("Failed to get profile " + e.getMessage());
+        }
+        String nextParticipations = null;
+        if (participations.size() > size) {
+            participations = participations.subList(0, size);
+            nextParticipations = String.valueOf(participations.get(size - 1).action().actionId());
+        }
+
+        List<EventDTO> createdEvents = new ArrayList<>();
+        String nextEvents = null;
+        if (readEvents) {
+            EventPage created = eventLogic.getEventPage(new EventFilter(null, null, null, user.username(), null, true), eventsCursor, size, true);
+            for (Event event : created.events()) {
+                createdEvents.add(new EventDTO(event, event.initialBudget()));
+            }
+            nextEvents = created.nextCursor();
+        }
+
+        return new UserProfile(user, participations, nextParticipations, createdEvents, nextEvents);
+    }
+
+    private static boolean isBlank(String cursor) {
+        return cursor == null || cursor.isBlank();
+    }
+}
@@ -0,0 +1,50 @@
+package io.businessLogic;
+
+import io.datarecords.Action;
+import io.datarecords.Event;
+import io.datarecords.SettlementJob;
+import io.persistence.EventRepository;
+import io.persistence.PersistenceException;
+import io.persistence.SettlementJobRepository;
+import org.springframework.stereotype.Service;
+
+@Service
+public class SettlementLogic {
+    private final SettlementJobRepository settlementJobRepository;
+    private final EventRepository eventRepository;
+
+    public SettlementLogic(SettlementJobRepository settlementJobRepository, EventRepository eventRepository) {
+        this.settlementJobRepository = settlementJobRepository;
+        this.eventRepository = eventRepository;
+    }
+
+    /**
+     * Queues the settlement of an event for the {@link SettlementWorker}s. Settlements that would be
+     * rejected anyway are refused here, so the caller gets the reason right away instead of a failed job.
+     */
+    public SettlementJob requestSettlement(int eventId, String winnersAction) throws BusinessLogicException {
+        try {
+            Event event = eventRepository.findEventById(eventId);
+            if (event == null) {
+                throw new BusinessLogicException("Event not found.");
+            }
+            if (event.isFinished()) {
+                throw new BusinessLogicException("Event is already finished.");
+            }
+            if (event.actions().stream().map(Action::action).noneMatch(a -> a.equals(winnersAction))) {
+                throw new BusinessLogicException("Event has no action " + winnersAction);
+            }
+            return settlementJobRepository.enqueue(eventId, winnersAction);
+        } catch (PersistenceException e) {
+            throw new BusinessLogicException("Failed to queue the settlement " + e.getMessage());
+        }
+    }
+
+    public SettlementJob getJob(int jobId) throws BusinessLogicException {
+        try {
+            return settlementJobRepository.findById(jobId);
+        } catch (PersistenceException e) {
+            throw new BusinessLogicException("Failed to load settlement job " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package io.businessLogic;
+
+import io.datarecords.SettlementJob;
+import io.persistence.EventRepository;
+import io.persistence.PersistenceException;
+import io.persistence.SettlementJobRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs queued settlements in the background. {@code settlement.workers} threads each poll the queue
+ * and drain it, so at most that many settlements run at once on this node. A failed attempt is retried
+ * with a growing delay until {@code settlement.max-attempts} is used up; a job left {@code running} by a
+ * node that died is claimed again once its {@code settlement.lease} ran out.
+ *
+ * Every job this node settled is published as an application event after it committed.
+ */
+@Component
+public class SettlementWorker {
+    private final SettlementJobRepository jobs;
+    private final EventRepository eventRepository;
+    private final int maxAttempts;
+    private final Duration lease;
+    private final Duration retryDelay;
+    private final ApplicationEventPublisher events;
+    private final ScheduledExecutorService workers;
+
+    public SettlementWorker(SettlementJobRepository jobs, EventRepository eventRepository,
+                            ApplicationEventPublisher events,
+                            @Value("${settlement.workers:2}") int workers,
+                            @Value("${settlement.poll-interval:PT1S}") Duration pollInterval,
+                            @Value("${settlement.max-attempts:3}") int maxAttempts,
+                            @Value("${settlement.lease:PT5M}") Duration lease,
+                            @Value("${settlement.retry-delay:PT5S}") Duration retryDelay,
+                            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.jobs = jobs;
+        this.eventRepository = eventRepository;
+        this.events = events;
+        this.maxAttempts = maxAttempts;
+        this.lease = lease;
+        this.retryDelay = retryDelay;
+        this.workers = Executors.newScheduledThreadPool(workers, WorkerThreads.pool("settlement", virtualThreads));
+        for (int i = 0; i < workers; i++) {
+            this.workers.scheduleWithFixedDelay(this::drain, pollInterval.toMillis(), pollInterval.toMillis(),
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private void drain() {
+        try {
+            SettlementJob job;
+            while (!Thread.currentThread().isInterrupted() && (job = jobs.claimNext(lease)) != null) {
+                process(job);
+            }
+        } catch (PersistenceException | RuntimeException e) {
+            // An exception would cancel the periodic task; the queue is polled again next interval.
+            e.printStackTrace();
+        }
+    }
+
+    private void process(SettlementJob job) throws PersistenceException {
+        if (job.attempts() > maxAttempts) {
+            jobs.fail(job, "Gave up after " + maxAttempts + " attempts: " + job.lastError());
+            return;
+        }
+        SettlementJob result;
+        try {
+            result = jobs.run(job);
+        } catch (PersistenceException e) {
+            if (job.attempts() < maxAttempts) {
+                jobs.retryLater(job, e.getMessage(), retryDelay.multipliedBy(job.attempts()));
+            } else {
+                jobs.fail(job, e.getMessage());
+            }
+            return;
+        }
+        eventRepository.evict(job.eventId());
+        if (result != null && "done".equals(result.status()) && result.attempts() == job.attempts()) {
+            events.publishEvent(result);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package io.businessLogic;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.persistence.Coalescer;
+
+import java.time.Duration;
+
+/**
+ * Coalesces concurrent identical reads through a {@link Coalescer}. Callers asking for a key while it is
+ * being computed wait for that computation and share its result or its failure, so a burst of requests for
+ * one event costs one round of queries. The computation runs on the thread of the caller that asked first.
+ *
+ * With a {@code freshness} window, a result is also handed out for that long after it was computed,
+ * so a result can be up to that old. A failed computation is never kept. With no window, the first caller
+ * after a computation finished starts a new one.
+ *
+ * Publishes {@code coalesced.reads} tagged with the {@code name} and how the read was served:
+ * {@code computed}, {@code shared} (waited for a computation in flight) or {@code fresh}.
+ *
+ * Results are shared between callers, so they must not be modified.
+ */
+public class SingleFlight<K, V> {
+    private final Coalescer<K, V> calls = new Coalescer<>();
+    private final Cache<K, V> fresh;
+    private final Counter computed;
+    private final Counter shared;
+    private final Counter served;
+
+    public interface Computation<V> {
+        V compute() throws BusinessLogicException;
+    }
+
+    public SingleFlight(String name, Duration freshness) {
+        this.fresh = freshness.isZero() ? null
+                : Caffeine.newBuilder().maximumSize(10_000).expireAfterWrite(freshness).build();
+        this.computed = counter(name, "computed");
+        this.shared = counter(name, "shared");
+        this.served = counter(name, "fresh");
+    }
+
+    private static Counter counter(String name, String result) {
+        return Counter.builder("coalesced.reads").tag("name", name).tag("result", result)
+                .register(Metrics.globalRegistry);
+    }
+
+    public V get(K key, Computation<V> computation) throws BusinessLogicException {
+        V value = fresh == null ? null : fresh.getIfPresent(key);
+        if (value != null) {
+            served.increment();
+            return value;
+        }
+        Coalescer.Flight<V> flight = calls.run(key, () -> {
+            V result = computation.compute();
+            if (fresh != null && result != null) {
+                fresh.put(key, result);
+            }
+            return result;
+        });
+        (flight.started() ? computed : shared).increment();
+        return Coalescer.join(flight.outcome(), BusinessLogicException.class);
+    }
+}
@@ -2,47 +2,56 @@ package io.businessLogic;
 
 import io.datarecords.*;
 import io.persistence.*;
-import org.mindrot.jbcrypt.BCrypt;
 import org.springframework.stereotype.Service;
-import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 
+@Service
 public class UserLogic {
-    private UserRepository userRepository;
+    private final UserRepository userRepository;
+    private final PasswordHasher passwordHasher;
+    private final LoginThrottle loginThrottle;
+    private final VerificationPipeline verificationPipeline;
 
-    public UserLogic(UserRepository userRepository) {
+    public UserLogic(UserRepository userRepository, PasswordHasher passwordHasher, LoginThrottle loginThrottle,
+                     VerificationPipeline verificationPipeline) {
         this.userRepository = userRepository;
+        this.passwordHasher = passwordHasher;
+        this.loginThrottle = loginThrottle;
+        this.verificationPipeline = verificationPipeline;
     }
 
-    public boolean login(String username, String password) throws BusinessLogicException {
+    /**
+     * @return the user if the username (exact case) and password match, otherwise {@code null}
+     * @throws LoginThrottledException if the username or the client address failed too often recently
+     * @throws LoginOverloadedException if the password could not be checked because hashing is saturated
+     */
+    public User login(String username, String password, String clientAddress) throws BusinessLogicException {
+        loginThrottle.check(username, clientAddress);
         User user = null;
         try {
-            user = this.userRepository.getAll().stream().filter((User u) ->u.username().equals(username)).findFirst().orElse(null);
+            user = this.userRepository.findByUsername(username);
         } catch (PersistenceException e) {
             throw new BusinessLogicException("Failed to login"+e.getMessage());
         }
-        if(user == null) {
-            return false;
+        if(user != null && user.username().equals(username) && passwordHasher.check(password, user.password())) {
+            loginThrottle.succeeded(username);
+            return user;
         } else {
-            if(BCrypt.checkpw(password, user.password())) {
-                return true;
-            } else {
-                return false;
-            }
+            loginThrottle.failed(username, clientAddress);
+            return null;
         }
     }
     public void register(User user) throws BusinessLogicException {
         try {
-            userRepository.addUser(new User(user.username(),user.email(),user.isVerified(),user.balance(),BCrypt.hashpw(user.password(),BCrypt.gensalt())));
+            userRepository.addUser(new User(user.username(),user.email(),user.isVerified(),user.balance(),passwordHasher.hash(user.password())));
         } catch (PersistenceException e){
             throw new BusinessLogicException("Failed to register");
         }
     }
     public User findByUsername(String username) throws BusinessLogicException {
         try {
-            return userRepository.getAll().stream().filter((User u) ->u.username().equalsIgnoreCase(username)).findFirst().orElse(null);
+            return userRepository.findByUsername(username);
         } catch (PersistenceException e) {
             throw new BusinessLogicException("Failed to find by username"+e.getMessage());
         }
@@ -65,73 +74,16 @@ public class UserLogic {
             throw new BusinessLogicException("Failed to get all users"+e.getMessage());
         }
     }
-    public Object[] userStats(String username) throws BusinessLogicException {
-        User user = findByUsername(username);
-        ParticipationRepository participationRepository = new ParticipationRepository();
-        EventRepository eventRepository = new EventRepository();
-        List<Participation> participations = new ArrayList<>();
-        try {
-            participations = participationRepository.getAll().stream()
-                    .filter(p -> p.user().username().equals(username))
-                    .collect(Collectors.toList());
-        } catch (PersistenceException e) {
-            throw new BusinessLogicException("Failed to gather user statistics"+e.getMessage());
-        }
-        List<Event> events = new ArrayList<>();
-        try {
-            events = eventRepository.getAll().stream().filter(event -> event.creator().equals(username)).collect(Collectors.toList());
-        } catch (PersistenceException e) {
-            throw new RuntimeException(e);
-        }
-        List<EventDTO> dtos = new ArrayList<>();
-        Logic logic = new Logic(Logic.getRepository());
-        for(Event event : events) {
-            double initial = logic.getEventLogic().initialBudget(event.eventId());
-            dtos.add(new EventDTO(event, initial));
-        }
-        return new Object[]{user,participations,dtos};
-    }
-    public void verificationRequest(Verification verification) throws BusinessLogicException {
-        try{
-            if(VerificationCenter.validateVerificationData(verification)){
-                Verification encryptedVerification = VerificationCenter.encryptVerificationData(verification);
-                userRepository.verificationRequest(encryptedVerification);
-            }
-        } catch (PersistenceException e) {
-            throw new BusinessLogicException("Failed to verification request"+e.getMessage());
-        }
-    }
-    public void deposit() throws BusinessLogicException {
-        try{
-            DepositRepository depositRepository = new DepositRepository();
-
-            List<MonoBankDeposit> deposits = depositRepository.getLatestTransactions();
-            if(deposits ==null || deposits.isEmpty()){
-                return;
-            }
-            for(MonoBankDeposit mbd : deposits){
-                userRepository.monoDeposit(mbd);
-            }
-        } catch (PersistenceException e) {
-            throw new BusinessLogicException("Failed to deposit "+e.getMessage());
-        }
-
-
+    /**
+     * Validates the submission and hands it to the {@link VerificationPipeline}, which encrypts and
+     * stores it in the background.
+     */
+    public VerificationStatus verificationRequest(Verification verification) throws BusinessLogicException {
+        VerificationCenter.validateVerificationData(verification);
+        return verificationPipeline.submit(verification);
     }
-    public void withdraw() throws BusinessLogicException {
-        try{
-            DepositRepository depositRepository = new DepositRepository();
-
-            List<MonoBankDeposit> withdrawals = depositRepository.getLatestWithdrawal();
-            if(withdrawals ==null || withdrawals.isEmpty()){
-                return;
-            }
-            for(MonoBankDeposit mbd : withdrawals){
-                userRepository.monoDeposit(mbd);
-            }
-        } catch (PersistenceException e) {
-            throw new BusinessLogicException("Failed to withdraw "+e.getMessage());
-        }
+    public VerificationStatus getVerificationStatus(String id) {
+        return verificationPipeline.getStatus(id);
     }
 
 }
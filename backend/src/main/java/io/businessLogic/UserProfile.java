@@ -0,0 +1,16 @@
+package io.businessLogic;
+
+import io.datarecords.Participation;
+import io.datarecords.User;
+
+import java.util.List;
+
+/**
+ * What the profile page shows: the user without the password, a page of their bets (on the newest actions first) and a
+ * page of the events they created (newest first). Each cursor is {@code null} when there is nothing more
+ * and otherwise fetches the next page of its own list.
+ */
+public record UserProfile(User user,
+                          List<Participation> participations, String participationsCursor,
+                          List<EventDTO> createdEvents, String createdEventsCursor) {
+}
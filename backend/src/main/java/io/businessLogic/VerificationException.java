@@ -1,9 +1,24 @@
 package io.businessLogic;
 
+import java.util.Map;
+
 public class VerificationException extends BusinessLogicException {
+    private final Map<String, String> fieldErrors;
+
     public VerificationException(String message) {
         super(message);
+        this.fieldErrors = Map.of();
     }
-}
 
+    /**
+     * @param fieldErrors every invalid field mapped to its error, in form order
+     */
+    public VerificationException(Map<String, String> fieldErrors) {
+        super(String.join(", ", fieldErrors.values()));
+        this.fieldErrors = fieldErrors;
+    }
 
+    public Map<String, String> getFieldErrors() {
+        return fieldErrors;
+    }
+}
@@ -0,0 +1,10 @@
+package io.businessLogic;
+
+/**
+ * Too many verifications are being encrypted already; answered with 503.
+ */
+public class VerificationOverloadedException extends VerificationException {
+    public VerificationOverloadedException(String message) {
+        super(message);
+    }
+}
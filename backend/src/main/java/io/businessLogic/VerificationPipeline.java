@@ -0,0 +1,163 @@
+package io.businessLogic;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.datarecords.Verification;
+import io.datarecords.VerificationStatus;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Metrics;
+import io.persistence.PersistenceException;
+import io.persistence.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Encrypts and stores verification submissions off the request thread. A submission's four hashes run
+ * in parallel on a pool of {@code verification.hash-threads} threads; encrypted submissions are
+ * collected and inserted in batches of up to {@code verification.batch-size} by a single writer. At most
+ * {@code verification.max-pending} submissions are in flight, beyond that {@link #submit} refuses with
+ * a {@link VerificationOverloadedException}.
+ *
+ * Statuses are kept in memory for {@code verification.status-ttl} after their last change, on the node
+ * that accepted the submission. On shutdown new submissions are refused, and the ones already accepted are
+ * encrypted and saved before the pipeline stops.
+ */
+@Component
+public class VerificationPipeline {
+    private final UserRepository userRepository;
+    private final ThreadPoolExecutor hashPool;
+    private final Semaphore pending;
+    private final int batchSize;
+    private final BlockingQueue<Encrypted> encrypted = new LinkedBlockingQueue<>();
+    private final Cache<String, VerificationStatus> statuses;
+    private final ScheduledExecutorService writer;
+
+    private static final long SHUTDOWN_GRACE_SECONDS = 10;
+
+    private record Encrypted(String id, Verification verification) { }
+
+    public VerificationPipeline(UserRepository userRepository,
+                                @Value("${verification.hash-threads:0}") int hashThreads,
+                                @Value("${verification.max-pending:256}") int maxPending,
+                                @Value("${verification.batch-size:50}") int batchSize,
+                                @Value("${verification.flush-interval:PT0.2S}") Duration flushInterval,
+                                @Value("${verification.status-ttl:PT1H}") Duration statusTtl,
+                                @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        this.userRepository = userRepository;
+        int threads = hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger count = new AtomicInteger();
+        // Room for the four hashes of every pending submission, so an admitted submission is never rejected.
+        this.hashPool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxPending * 4), r -> {
+                    Thread thread = new Thread(r, "verification-hash-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.pending = new Semaphore(maxPending);
+        this.batchSize = batchSize;
+        this.statuses = Caffeine.newBuilder().expireAfterWrite(statusTtl).build();
+        this.writer = Executors.newSingleThreadScheduledExecutor(WorkerThreads.single("verification-writer", virtualThreads));
+        writer.scheduleWithFixedDelay(this::flush, flushInterval.toMillis(), flushInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+        Gauge.builder("verification.pending", pending, p -> maxPending - p.availablePermits())
+                .register(Metrics.globalRegistry);
+        Gauge.builder("verification.hash.queue", hashPool, p -> p.getQueue().size())
+                .register(Metrics.globalRegistry);
+    }
+
+    /**
+     * Accepts an already validated submission.
+     */
+    public VerificationStatus submit(Verification verification) throws VerificationOverloadedException {
+        if (!pending.tryAcquire()) {
+            throw new VerificationOverloadedException("Too many verifications in progress, try again shortly");
+        }
+        String id = UUID.randomUUID().toString();
+        String username = verification.user().username();
+        VerificationStatus status = new VerificationStatus(id, username, "encrypting", null);
+        statuses.put(id, status);
+        try {
+            VerificationCenter.encryptVerificationData(verification, hashPool).whenComplete((result, error) -> {
+                if (error != null) {
+                    finish(id, username, "Encryption failed");
+                } else {
+                    // Queue first, so a submission shown as saving is there for the next flush; that flush
+                    // may already have finished it, which saving must not overwrite.
+                    encrypted.add(new Encrypted(id, result));
+                    statuses.asMap().replace(id, status, new VerificationStatus(id, username, "saving", null));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            statuses.invalidate(id);
+            pending.release();
+            throw new VerificationOverloadedException("Too many verifications in progress, try again shortly");
+        }
+        return status;
+    }
+
+    /** @return the status, or {@code null} if the id is unknown or its status expired */
+    public VerificationStatus getStatus(String id) {
+        return statuses.getIfPresent(id);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        hashPool.shutdown();
+        writer.shutdown();
+        try {
+            if (!hashPool.awaitTermination(SHUTDOWN_GRACE_SECONDS, TimeUnit.SECONDS)) {
+                hashPool.shutdownNow();
+            }
+            writer.awaitTermination(SHUTDOWN_GRACE_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            hashPool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    void flush() {
+        List<Encrypted> batch = new ArrayList<>(batchSize);
+        while (encrypted.drainTo(batch, batchSize) > 0) {
+            try {
+                userRepository.verificationRequests(batch.stream().map(Encrypted::verification).toList());
+                batch.forEach(e -> finish(e.id(), e.verification().user().username(), null));
+            } catch (PersistenceException e) {
+                // One bad row fails the whole batch; insert one by one so only that submission fails.
+                for (Encrypted single : batch) {
+                    try {
+                        userRepository.verificationRequest(single.verification());
+                        finish(single.id(), single.verification().user().username(), null);
+                    } catch (PersistenceException rowFailure) {
+                        finish(single.id(), single.verification().user().username(), "Verification could not be saved");
+                    }
+                }
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                batch.forEach(single -> finish(single.id(), single.verification().user().username(), "Verification could not be saved"));
+            }
+            batch.clear();
+        }
+    }
+
+    private void finish(String id, String username, String error) {
+        statuses.put(id, new VerificationStatus(id, username, error == null ? "done" : "failed", error));
+        pending.release();
+    }
+}
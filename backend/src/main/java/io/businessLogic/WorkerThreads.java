@@ -0,0 +1,51 @@
+package io.businessLogic;
+
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threads for the background workers that spend their time waiting on the database, the bank or a
+ * client. With {@code spring.threads.virtual.enabled} on Java 21 these are virtual threads, as are the
+ * request threads Spring Boot then gives Tomcat; otherwise daemon platform threads. Below Java 21 the
+ * setting is ignored, as Spring Boot ignores it.
+ *
+ * CPU-bound pools ({@link PasswordHasher}, the hash pool of {@link VerificationPipeline}) do not use
+ * this: they are sized to the cores on purpose, and on virtual threads the same work would only compete
+ * with request handling for the carriers.
+ */
+public final class WorkerThreads {
+    private WorkerThreads() {
+    }
+
+    /** Threads named {@code name}, for a single-threaded executor. */
+    public static ThreadFactory single(String name, boolean virtual) {
+        if (isVirtual(virtual)) {
+            return new VirtualThreadTaskExecutor(name + "-").getVirtualThreadFactory();
+        }
+        return r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /** Threads named {@code name-1}, {@code name-2}, ... */
+    public static ThreadFactory pool(String name, boolean virtual) {
+        if (isVirtual(virtual)) {
+            return new VirtualThreadTaskExecutor(name + "-").getVirtualThreadFactory();
+        }
+        AtomicInteger count = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static boolean isVirtual(boolean enabled) {
+        return enabled && JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE);
+    }
+}
@@ -1,37 +1,54 @@
 package io.controller;
 
 import com.sun.jdi.request.EventRequest;
+import io.businessLogic.BetRejectedException;
 import io.businessLogic.BusinessLogicException;
 import io.businessLogic.Logic;
+import io.businessLogic.LoginOverloadedException;
+import io.businessLogic.LoginThrottledException;
+import io.businessLogic.VerificationException;
+import io.businessLogic.VerificationOverloadedException;
 import io.businessLogic.UserLogic;
+import io.businessLogic.UserProfile;
 import io.datarecords.*;
 import io.persistence.PersistenceException;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
 import org.mindrot.jbcrypt.BCrypt;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.net.URI;
 import java.util.*;
+import java.util.regex.Pattern;
 
 @RestController
 @RequestMapping("/api")
 @CrossOrigin(origins = "http://localhost:5173", allowCredentials = "true")
 public class Controller {
+    private static final Pattern EMAIL = Pattern.compile("^[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,6}$");
 
     private Logic logic;
+    private LiveUpdates liveUpdates;
 
 
-    public Controller(Logic logic) {
+    public Controller(Logic logic, LiveUpdates liveUpdates) {
         this.logic = logic;
+        this.liveUpdates = liveUpdates;
     }
     @PostMapping("/login")
-    public UserSession login(@RequestBody LoginRequest loginRequest, HttpSession session) throws BusinessLogicException {
+    public UserSession login(@RequestBody LoginRequest loginRequest, HttpSession session, HttpServletRequest request) throws BusinessLogicException {
         String username = loginRequest.username();
         String password = loginRequest.password();
 
-        if (logic.getUserLogic().login(username, password)) {
-            User user = logic.getUserLogic().findByUsername(username);
+        User user = logic.getUserLogic().login(username, password, request.getRemoteAddr());
+        if (user != null) {
             UserSession userSession = new UserSession(user.username(),user.email(),user.balance(),user.isVerified());
             session.setAttribute("user", userSession);
             return userSession;
@@ -40,9 +57,29 @@ public class Controller {
             throw new LoginRegistrationException("Login failed");
         }
     }
+    @ExceptionHandler(LoginThrottledException.class)
+    public ResponseEntity<String> loginThrottled(LoginThrottledException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfter().toSeconds()))
+                .body(e.getMessage());
+    }
+    @ExceptionHandler(VerificationException.class)
+    public ResponseEntity<Map<String, Object>> invalidVerification(VerificationException e) {
+        return ResponseEntity.badRequest().body(Map.of("message", e.getMessage(), "fieldErrors", e.getFieldErrors()));
+    }
+    @ExceptionHandler(BetRejectedException.class)
+    public ResponseEntity<Map<String, Object>> betRejected(BetRejectedException e) {
+        return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", e.getMessage(), "reason", e.getReason()));
+    }
+    @ExceptionHandler({LoginOverloadedException.class, VerificationOverloadedException.class})
+    public ResponseEntity<String> overloaded(BusinessLogicException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(e.getMessage());
+    }
     @PostMapping("/registration")
     public User register(@RequestBody RegistrationRequest userRequest) throws BusinessLogicException {
-        if(userRequest.username().length()<3 || userRequest.password().length()<8 || !userRequest.email().matches("^[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,6}$") || !logic.getUserLogic().uniqueUsername(userRequest.username())) {
+        if(userRequest.username().length()<3 || userRequest.password().length()<8 || !EMAIL.matcher(userRequest.email()).matches() || !logic.getUserLogic().uniqueUsername(userRequest.username())) {
             Map<String, String> error = new HashMap<>();
             throw new LoginRegistrationException("Bad input");
         } else {
@@ -62,74 +99,186 @@ public class Controller {
         } catch (BusinessLogicException e) {
             throw new RuntimeException(e);
         }
+        publishBalance(event.creator());
         return ResponseEntity.ok(event);
     }
     @GetMapping("/events")
     public List<Event> getAllEvents() {
         return logic.getEventLogic().getAllEvents();
     }
+    @GetMapping("/events/page")
+    public EventPage getEventPage(@RequestParam(required = false) String cursor,
+                                  @RequestParam(defaultValue = "20") int size,
+                                  @RequestParam(required = false) Boolean open,
+                                  @RequestParam(required = false) Boolean finished,
+                                  @RequestParam(name = "public", required = false) Boolean isPublic,
+                                  @RequestParam(required = false) String creator,
+                                  @RequestParam(required = false) String search,
+                                  @RequestParam(defaultValue = "newest") String sort,
+                                  @RequestParam(defaultValue = "true") boolean actions) throws BusinessLogicException {
+        EventFilter filter = new EventFilter(open, finished, isPublic, creator, search, !"oldest".equalsIgnoreCase(sort));
+        return logic.getEventLogic().getEventPage(filter, cursor, size, actions);
+    }
+    @GetMapping(path = "/events/{id}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamEvent(@PathVariable int id) {
+        return liveUpdates.subscribeToEvent(id);
+    }
+    @GetMapping(path = "/users/{username}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamUser(@PathVariable String username) {
+        return liveUpdates.subscribeToUser(username);
+    }
     @GetMapping("/events/{id}")
-    public Event getEvent(@PathVariable int id) {
-        return logic.getEventLogic().getAllEvents().stream().filter(event -> event.eventId() == id).findFirst().orElse(null);
+    public Event getEvent(@PathVariable int id) throws BusinessLogicException {
+        return logic.getEventLogic().getEvent(id);
     }
     @PatchMapping("/events/{id}/setClosed")
     public void setClosed(@PathVariable int id) throws BusinessLogicException {
         logic.getEventLogic().setClosed(id);
+        publishState(id);
     }
     @PatchMapping("/events/{id}/setOpen")
     public void setOpen(@PathVariable int id) throws BusinessLogicException {
         logic.getEventLogic().setOpen(id);
+        publishState(id);
     }
     @PatchMapping("/events/{id}/setPublic")
     public void setPublic(@PathVariable int id) throws BusinessLogicException {
         logic.getEventLogic().setPublic(id);
+        publishState(id);
     }
     @PatchMapping("/events/{id}/setPrivate")
     public void setPrivate(@PathVariable int id,String password) throws BusinessLogicException {
         logic.getEventLogic().setPrivate(id,password);
+        publishState(id);
     }
     @PatchMapping("/events/{id}/setFinished")
-    public void setFinished(@PathVariable int id,String winnersAction) throws BusinessLogicException {
-        logic.getEventLogic().setFinished(id,winnersAction);
+    public ResponseEntity<SettlementJob> setFinished(@PathVariable int id,String winnersAction) throws BusinessLogicException {
+        SettlementJob job = logic.getSettlementLogic().requestSettlement(id,winnersAction);
+        return ResponseEntity.accepted().location(URI.create("/api/settlements/" + job.jobId())).body(job);
+    }
+    /** Published by the settlement worker once a queued settlement committed. */
+    @EventListener
+    public void onSettled(SettlementJob job) {
+        publishState(job.eventId());
+        publishSettlementBalances(job.eventId());
+    }
+    @EventListener
+    public void onBankCredit(BankCredit credit) {
+        publishBalance(credit.username());
+    }
+    @GetMapping("/settlements/{jobId}")
+    public ResponseEntity<SettlementJob> getSettlement(@PathVariable int jobId) throws BusinessLogicException {
+        SettlementJob job = logic.getSettlementLogic().getJob(jobId);
+        return job == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(job);
     }
     @PostMapping("/addParticipation")
     public void addParticipation
             (@RequestBody Participation participation) throws BusinessLogicException {
-        logic.getParticipationLogic().addParticipation(participation);
+        int eventId = logic.getParticipationLogic().addParticipation(participation);
+        publishBudget(eventId);
+        publishBalance(participation.user().username());
     }
     @GetMapping("/users/{username}")
-    public Object[] userStats(@PathVariable String username) throws BusinessLogicException {
-        return logic.getUserLogic().userStats(username);
+    public UserProfile getProfile(@PathVariable String username,
+                                  @RequestParam(required = false) String participationsCursor,
+                                  @RequestParam(required = false) String eventsCursor,
+                                  @RequestParam(defaultValue = "20") int size) throws BusinessLogicException {
+        return logic.getProfileLogic().getProfile(username, participationsCursor, eventsCursor, size);
     }
     @PatchMapping("/events/actions/{actionId}/updateCoefficient")
     public void updateCoefficient(@PathVariable int actionId, @RequestParam double coefficient) throws BusinessLogicException {
-        logic.getEventLogic().updateCoefficient(actionId, coefficient);
+        int eventId = logic.getEventLogic().updateCoefficient(actionId, coefficient);
+        if (eventId >= 0) {
+            liveUpdates.publishCoefficient(new LiveUpdates.CoefficientChanged(eventId, actionId, coefficient));
+        }
     }
     @GetMapping("/events/{id}/analysis")
     public Object[] eventStats(@PathVariable int id) throws BusinessLogicException {
-        logic.getParticipationLogic().getEventParticipations(id);
-        logic.getEventLogic().suggestedCoefficients(id);
-        return new Object[]{logic.getParticipationLogic().getEventParticipations(id)};
+        if (logic.getEventLogic().getEvent(id) == null) {
+            throw new BusinessLogicException("Event not found.");
+        }
+        return new Object[]{logic.getParticipationLogic().getEventAnalysis(id)};
     }
     @GetMapping("/events/{id}/suggested")
     public List<Action> getSuggestedCoefficients(@PathVariable int id) throws BusinessLogicException {
         return logic.getEventLogic().suggestedCoefficients(id);
     }
     @PostMapping("verification")
-    public void verificationRequest(@RequestBody VerificationRequest verification) throws BusinessLogicException {
+    public ResponseEntity<VerificationStatus> verificationRequest(@RequestBody VerificationRequest verification) throws BusinessLogicException {
         User user = logic.getUserLogic().findByUsername(verification.username());
-        logic.getUserLogic().verificationRequest(new Verification(user,verification.firstName(), verification.lastName(), verification.bsn(), verification.iban(), verification.address(), verification.postalCode(), verification.phoneNumber()));
-    }
-    @PatchMapping("deposit")
-    public void deposit() throws BusinessLogicException {
-            logic.getUserLogic().deposit();
+        VerificationStatus status = logic.getUserLogic().verificationRequest(new Verification(user,verification.firstName(), verification.lastName(), verification.bsn(), verification.iban(), verification.address(), verification.postalCode(), verification.phoneNumber()));
+        return ResponseEntity.accepted().location(URI.create("/api/verification/" + status.id())).body(status);
     }
-    @PatchMapping("withdraw")
-    public void withdraw() throws BusinessLogicException {
-        logic.getUserLogic().withdraw();
+    @GetMapping("verification/{id}")
+    public ResponseEntity<VerificationStatus> verificationStatus(@PathVariable String id) {
+        VerificationStatus status = logic.getUserLogic().getVerificationStatus(id);
+        return status == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(status);
     }
     @GetMapping("sessionUpdate")
     public User sessionUpdate(@RequestParam String username) throws BusinessLogicException {
         return logic.getUserLogic().findByUsername(username);
     }
+
+    // The pushes below re-read the changed rows only when someone is listening. A failed read must
+    // not fail the write that already committed; subscribers catch up on their next full fetch.
+    private void publishState(int eventId) {
+        if (!liveUpdates.hasEventSubscribers(eventId)) {
+            return;
+        }
+        try {
+            Event event = logic.getEventLogic().getEvent(eventId);
+            if (event != null) {
+                liveUpdates.publishState(new LiveUpdates.StateChanged(eventId, event.isOpen(), event.isFinished(), event.isPublic()));
+                liveUpdates.publishBudget(new LiveUpdates.BudgetChanged(eventId, event.budget()));
+            }
+        } catch (BusinessLogicException e) {
+            e.printStackTrace();
+        }
+    }
+    private void publishBudget(int eventId) {
+        if (!liveUpdates.hasEventSubscribers(eventId)) {
+            return;
+        }
+        try {
+            Event event = logic.getEventLogic().getEvent(eventId);
+            if (event != null) {
+                liveUpdates.publishBudget(new LiveUpdates.BudgetChanged(eventId, event.budget()));
+            }
+        } catch (BusinessLogicException e) {
+            e.printStackTrace();
+        }
+    }
+    private void publishBalance(String username) {
+        if (username == null || !liveUpdates.hasUserSubscribers(username)) {
+            return;
+        }
+        try {
+            User user = logic.getUserLogic().findByUsername(username);
+            if (user != null) {
+                liveUpdates.publishBalance(new LiveUpdates.BalanceChanged(user.username(), user.balance()));
+            }
+        } catch (BusinessLogicException e) {
+            e.printStackTrace();
+        }
+    }
+    private void publishSettlementBalances(int eventId) {
+        if (!liveUpdates.hasUserSubscribers()) {
+            return;
+        }
+        try {
+            Event event = logic.getEventLogic().getEvent(eventId);
+            if (event != null) {
+                publishBalance(event.creator());
+            }
+            Set<String> bettors = new HashSet<>();
+            for (Participation participation : logic.getParticipationLogic().getEventParticipations(eventId)) {
+                User user = participation.user();
+                if (bettors.add(user.username()) && liveUpdates.hasUserSubscribers(user.username())) {
+                    liveUpdates.publishBalance(new LiveUpdates.BalanceChanged(user.username(), user.balance()));
+                }
+            }
+        } catch (BusinessLogicException e) {
+            e.printStackTrace();
+        }
+    }
 }
@@ -0,0 +1,202 @@
+package io.controller;
+
+import io.businessLogic.WorkerThreads;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Server-sent event fan-out for per-event deltas and per-user balance changes.
+ *
+ * Subscribers are {@link SseEmitter}s parked on async servlet requests, so an idle subscriber costs
+ * an open socket and a map entry but no thread. Publishing only enqueues work: every subscriber has its
+ * own bounded queue, drained by one sender thread at a time, so a request thread never waits on a client,
+ * a slow client only holds up its own deltas and every subscriber sees the deltas of a topic in the order
+ * they were published. A subscriber that lets {@link #QUEUE_CAPACITY} deltas pile up is too slow to follow
+ * and is dropped, as are emitters that fail a send, time out or disconnect.
+ */
+@Component
+public class LiveUpdates {
+    static final long SUBSCRIPTION_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(30);
+    static final int QUEUE_CAPACITY = 64;
+    private static final long HEARTBEAT_SECONDS = 25;
+    private static final String USER_TOPIC = "user:";
+
+    public record CoefficientChanged(int eventId, int actionId, double coefficient) { }
+    public record BudgetChanged(int eventId, double budget) { }
+    public record StateChanged(int eventId, boolean isOpen, boolean isFinished, boolean isPublic) { }
+    public record BalanceChanged(String username, double balance) { }
+
+    private final Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final ExecutorService senders;
+    private final ScheduledExecutorService heartbeat;
+
+    public LiveUpdates(@Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        senders = Executors.newCachedThreadPool(WorkerThreads.pool("live-updates", virtualThreads));
+        heartbeat = Executors.newSingleThreadScheduledExecutor(WorkerThreads.single("live-updates-heartbeat", virtualThreads));
+        heartbeat.scheduleAtFixedRate(this::heartbeat, HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public SseEmitter subscribeToEvent(int eventId) {
+        return subscribe(eventTopic(eventId));
+    }
+
+    public SseEmitter subscribeToUser(String username) {
+        return subscribe(userTopic(username));
+    }
+
+    public boolean hasEventSubscribers(int eventId) {
+        return hasSubscribers(eventTopic(eventId));
+    }
+
+    public boolean hasUserSubscribers(String username) {
+        return hasSubscribers(userTopic(username));
+    }
+
+    /** Whether anyone follows a balance at all, to skip looking up whose balances changed. */
+    public boolean hasUserSubscribers() {
+        return subscribers.keySet().stream().anyMatch(topic -> topic.startsWith(USER_TOPIC));
+    }
+
+    public void publishCoefficient(CoefficientChanged change) {
+        publish(eventTopic(change.eventId()), "coefficient", change);
+    }
+
+    public void publishBudget(BudgetChanged change) {
+        publish(eventTopic(change.eventId()), "budget", change);
+    }
+
+    public void publishState(StateChanged change) {
+        publish(eventTopic(change.eventId()), "state", change);
+    }
+
+    public void publishBalance(BalanceChanged change) {
+        publish(userTopic(change.username()), "balance", change);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        heartbeat.shutdownNow();
+        senders.shutdownNow();
+        subscribers.values().forEach(topic -> topic.forEach(subscriber -> subscriber.emitter.complete()));
+        subscribers.clear();
+    }
+
+    SseEmitter newEmitter() {
+        return new SseEmitter(SUBSCRIPTION_TIMEOUT_MS);
+    }
+
+    private SseEmitter subscribe(String topic) {
+        Subscriber subscriber = new Subscriber(topic, newEmitter());
+        subscribers.compute(topic, (t, topicSubscribers) -> {
+            Set<Subscriber> set = topicSubscribers == null ? ConcurrentHashMap.newKeySet() : topicSubscribers;
+            set.add(subscriber);
+            return set;
+        });
+        Runnable remove = () -> unsubscribe(subscriber);
+        subscriber.emitter.onCompletion(remove);
+        subscriber.emitter.onTimeout(remove);
+        subscriber.emitter.onError(e -> remove.run());
+        return subscriber.emitter;
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.topic, (t, topicSubscribers) -> {
+            topicSubscribers.remove(subscriber);
+            return topicSubscribers.isEmpty() ? null : topicSubscribers;
+        });
+    }
+
+    private boolean hasSubscribers(String topic) {
+        return subscribers.containsKey(topic);
+    }
+
+    private void publish(String topic, String name, Object payload) {
+        Set<Subscriber> topicSubscribers = subscribers.get(topic);
+        if (topicSubscribers == null) {
+            return;
+        }
+        for (Subscriber subscriber : topicSubscribers) {
+            subscriber.enqueue(SseEmitter.event().name(name).data(payload));
+        }
+    }
+
+    private void heartbeat() {
+        subscribers.values().forEach(topicSubscribers -> topicSubscribers.forEach(
+                subscriber -> subscriber.enqueue(SseEmitter.event().comment("heartbeat"))));
+    }
+
+    private void drop(Subscriber subscriber, Throwable cause) {
+        unsubscribe(subscriber);
+        subscriber.emitter.completeWithError(cause);
+    }
+
+    private final class Subscriber {
+        private final String topic;
+        private final SseEmitter emitter;
+        private final Queue<SseEmitter.SseEventBuilder> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private Subscriber(String topic, SseEmitter emitter) {
+            this.topic = topic;
+            this.emitter = emitter;
+        }
+
+        private void enqueue(SseEmitter.SseEventBuilder event) {
+            if (!queue.offer(event)) {
+                queue.clear();
+                drop(this, new IOException("Subscriber fell " + QUEUE_CAPACITY + " updates behind."));
+                return;
+            }
+            drain();
+        }
+
+        // At most one sender per subscriber at a time keeps its deltas in order. A sender checks the queue
+        // again after letting go, so a delta enqueued while it was finishing is not left behind.
+        private void drain() {
+            if (queue.isEmpty() || !draining.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                senders.execute(() -> {
+                    try {
+                        SseEmitter.SseEventBuilder event;
+                        while ((event = queue.poll()) != null) {
+                            emitter.send(event);
+                        }
+                    } catch (IOException | IllegalStateException e) {
+                        queue.clear();
+                        drop(this, e);
+                    } finally {
+                        draining.set(false);
+                    }
+                    drain();
+                });
+            } catch (RejectedExecutionException e) {
+                draining.set(false);
+            }
+        }
+    }
+
+    private static String eventTopic(int eventId) {
+        return "event:" + eventId;
+    }
+
+    private static String userTopic(String username) {
+        return USER_TOPIC + username.toLowerCase();
+    }
+}
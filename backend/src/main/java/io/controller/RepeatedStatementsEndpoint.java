@@ -0,0 +1,28 @@
+package io.controller;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * {@code /actuator/repeatedstatements}: the requests that recently ran one statement shape over and over,
+ * see {@link StatementMetrics}.
+ */
+@Component
+@Endpoint(id = "repeatedstatements")
+@ConditionalOnProperty(name = "metrics.detailed", havingValue = "true", matchIfMissing = true)
+public class RepeatedStatementsEndpoint {
+    private final StatementMetrics statementMetrics;
+
+    public RepeatedStatementsEndpoint(StatementMetrics statementMetrics) {
+        this.statementMetrics = statementMetrics;
+    }
+
+    @ReadOperation
+    public List<StatementMetrics.RepeatedStatement> offenders() {
+        return statementMetrics.getOffenders();
+    }
+}
@@ -0,0 +1,107 @@
+package io.controller;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import io.persistence.StatementReport;
+import io.persistence.StatementTracker;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+/**
+ * Tracks the SQL each request executes on its own thread and records it as
+ * {@code http.server.requests.statements} and {@code http.server.requests.rows}, tagged like
+ * {@code http.server.requests} with the method and the uri template. A statement shape executed more
+ * than {@code metrics.repeated-statement-threshold} times in one request is logged, counted as
+ * {@code jdbc.repeated.statements} and kept among the last {@value #KEPT_OFFENDERS} offenders shown by
+ * the {@code repeatedstatements} actuator endpoint.
+ *
+ * Work a request hands to background threads (settlements, verification writes) is not included.
+ * Switched off with {@code metrics.detailed=false}.
+ */
+@Component
+@ConditionalOnProperty(name = "metrics.detailed", havingValue = "true", matchIfMissing = true)
+public class StatementMetrics implements AsyncHandlerInterceptor, WebMvcConfigurer {
+    private static final Logger log = LoggerFactory.getLogger(StatementMetrics.class);
+    private static final String TRACKING = StatementMetrics.class.getName() + ".tracking";
+    private static final int KEPT_OFFENDERS = 50;
+
+    private final int repeatedStatementThreshold;
+    private final Deque<RepeatedStatement> offenders = new ConcurrentLinkedDeque<>();
+
+    public record RepeatedStatement(String method, String uri, String statement, int executions, LocalDateTime at) {
+    }
+
+    public StatementMetrics(@Value("${metrics.repeated-statement-threshold:10}") int repeatedStatementThreshold) {
+        this.repeatedStatementThreshold = repeatedStatementThreshold;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(this);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        request.setAttribute(TRACKING, StatementTracker.start());
+        return true;
+    }
+
+    /** An async request (server-sent events) leaves its thread; stop tracking it there. */
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getAttribute(TRACKING) instanceof StatementTracker.Tracking tracking) {
+            tracking.close();
+            request.removeAttribute(TRACKING);
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (!(request.getAttribute(TRACKING) instanceof StatementTracker.Tracking tracking)) {
+            return;
+        }
+        tracking.close();
+        StatementReport report = tracking.report();
+        String method = request.getMethod();
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+        DistributionSummary.builder("http.server.requests.statements").tag("method", method).tag("uri", uri)
+                .register(Metrics.globalRegistry).record(report.statements());
+        DistributionSummary.builder("http.server.requests.rows").tag("method", method).tag("uri", uri)
+                .register(Metrics.globalRegistry).record(report.rows());
+
+        for (Map.Entry<String, Integer> repeated : report.repeated(repeatedStatementThreshold).entrySet()) {
+            log.warn("{} {} executed the same statement {} times ({} statements in total): {}",
+                    method, uri, repeated.getValue(), report.statements(), repeated.getKey());
+            Counter.builder("jdbc.repeated.statements").tag("method", method).tag("uri", uri)
+                    .register(Metrics.globalRegistry).increment();
+            offenders.addFirst(new RepeatedStatement(method, uri, repeated.getKey(), repeated.getValue(),
+                    LocalDateTime.now()));
+            while (offenders.size() > KEPT_OFFENDERS) {
+                offenders.pollLast();
+            }
+        }
+    }
+
+    /** The most recent offenders, newest first. */
+    public List<RepeatedStatement> getOffenders() {
+        return new ArrayList<>(offenders);
+    }
+}
@@ -0,0 +1,7 @@
+package io.datarecords;
+
+/**
+ * Running stake aggregate of one action, maintained with every placed bet.
+ */
+public record ActionTotal(int actionId, double totalStake, int bettors) {
+}
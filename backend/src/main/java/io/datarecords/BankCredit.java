@@ -0,0 +1,7 @@
+package io.datarecords;
+
+/**
+ * A statement line applied to the balance of {@code username}.
+ */
+public record BankCredit(String transactionId, String username, double amount) {
+}
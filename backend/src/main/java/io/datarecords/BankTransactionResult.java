@@ -0,0 +1,13 @@
+package io.datarecords;
+
+/**
+ * What applying one statement line did: {@code CREDITED} to {@code username}'s balance (a withdrawal
+ * credits a negative amount), {@code UNMATCHED} when the description names no verified user or more than
+ * one, or {@code DUPLICATE} when the line was applied before. {@code username} is {@code null} unless
+ * credited.
+ */
+public record BankTransactionResult(MonoBankDeposit transaction, Outcome outcome, String username) {
+    public enum Outcome {
+        CREDITED, UNMATCHED, DUPLICATE
+    }
+}
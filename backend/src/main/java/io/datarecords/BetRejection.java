@@ -0,0 +1,26 @@
+package io.datarecords;
+
+/**
+ * Why a bet was not placed. Bets are checked by the statements that place them, so the reason reflects
+ * the state the bet actually met, not a read taken before it.
+ */
+public enum BetRejection {
+    EVENT_NOT_FOUND("Event not found."),
+    EVENT_FINISHED("The event is already finished."),
+    EVENT_CLOSED("The event is closed for bets."),
+    STAKE_LIMIT_EXCEEDED("Stake exceeds the allowed limit for this event."),
+    PLAYER_LIMIT_REACHED("The event has reached its player limit."),
+    ALREADY_PLACED("You already bet on this action."),
+    UNKNOWN_USER("User not found."),
+    INSUFFICIENT_BALANCE("Insufficient balance to place this stake.");
+
+    private final String message;
+
+    BetRejection(String message) {
+        this.message = message;
+    }
+
+    public String message() {
+        return message;
+    }
+}
@@ -0,0 +1,15 @@
+package io.datarecords;
+
+/**
+ * What placing a bet did: placed on the event {@code eventId}, as the database found it through the
+ * action, or refused for {@code rejection}. {@code rejection} is {@code null} when the bet was placed.
+ */
+public record BetResult(int eventId, BetRejection rejection) {
+    public static BetResult placed(int eventId) {
+        return new BetResult(eventId, null);
+    }
+
+    public static BetResult rejected(BetRejection rejection) {
+        return new BetResult(0, rejection);
+    }
+}
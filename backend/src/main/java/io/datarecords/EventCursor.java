@@ -0,0 +1,27 @@
+package io.datarecords;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Keyset position in the event listing: the (timeCreated, eventId) of the last event on a page.
+ * Travels to the client as an opaque URL-safe token.
+ */
+public record EventCursor(LocalDateTime timeCreated, int eventId) {
+
+    public String encode() {
+        String raw = timeCreated + "_" + eventId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static EventCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('_');
+            return new EventCursor(LocalDateTime.parse(raw.substring(0, separator)), Integer.parseInt(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed event cursor", e);
+        }
+    }
+}
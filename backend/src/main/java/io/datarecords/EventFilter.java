@@ -0,0 +1,7 @@
+package io.datarecords;
+
+/**
+ * Server-side filters for the paginated event listing. {@code null} means "don't filter on this".
+ */
+public record EventFilter(Boolean isOpen, Boolean isFinished, Boolean isPublic, String creator, String search, boolean newestFirst) {
+}
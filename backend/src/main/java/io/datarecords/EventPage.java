@@ -0,0 +1,9 @@
+package io.datarecords;
+
+import java.util.List;
+
+/**
+ * One page of the event listing. {@code nextCursor} is {@code null} on the last page.
+ */
+public record EventPage(List<Event> events, String nextCursor) {
+}
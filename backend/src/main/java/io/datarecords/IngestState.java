@@ -0,0 +1,11 @@
+package io.datarecords;
+
+import java.time.Instant;
+
+/**
+ * How far the bank statement has been read. Transactions up to {@code highWater} are all applied. While a
+ * window holds more transactions than one statement returns, {@code windowEnd} is the end of that window
+ * and {@code pageEnd} the oldest transaction read so far; both are {@code null} otherwise.
+ */
+public record IngestState(Instant highWater, Instant windowEnd, Instant pageEnd) {
+}
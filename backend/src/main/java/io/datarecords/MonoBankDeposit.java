@@ -2,5 +2,9 @@ package io.datarecords;
 
 import java.time.Instant;
 
-public record MonoBankDeposit(double amount, String description, Instant depositDate) {
+/**
+ * One line of the bank statement: a deposit if {@code amount} is positive, a withdrawal if negative.
+ * {@code id} is the bank's transaction id.
+ */
+public record MonoBankDeposit(String id, double amount, String description, Instant depositDate) {
 }
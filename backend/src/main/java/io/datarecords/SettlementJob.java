@@ -0,0 +1,13 @@
+package io.datarecords;
+
+import java.time.LocalDateTime;
+
+/**
+ * A queued settlement and its progress: {@code queued}, {@code running}, then {@code done} with the
+ * {@link SettlementSummary} or {@code failed} with the last error once its attempts are used up.
+ * A failed attempt that can still be retried puts the job back to {@code queued}.
+ */
+public record SettlementJob(int jobId, int eventId, String winnersAction, String status, int attempts,
+                            String lastError, LocalDateTime createdAt, LocalDateTime startedAt,
+                            LocalDateTime finishedAt, SettlementSummary summary) {
+}
@@ -0,0 +1,9 @@
+package io.datarecords;
+
+/**
+ * Outcome of settling an event: how many bets won and lost, what was paid out to the winners, what the
+ * losers were charged and what the creator got back from the remaining budget.
+ */
+public record SettlementSummary(int eventId, String winningAction, int winningBets, int losingBets,
+                                double payout, double lostStakes, double creatorRefund, int usersCredited) {
+}
@@ -0,0 +1,8 @@
+package io.datarecords;
+
+/**
+ * Progress of a submitted verification: {@code encrypting}, {@code saving}, then {@code done} or
+ * {@code failed} with the reason in {@code error}.
+ */
+public record VerificationStatus(String id, String username, String status, String error) {
+}
@@ -0,0 +1,212 @@
+package io.persistence;
+
+import io.datarecords.BankTransactionResult;
+import io.datarecords.IngestState;
+import io.datarecords.MonoBankDeposit;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The ingested bank statement: {@code bank_transactions} records every transaction applied so far, keyed
+ * by the bank's id, and {@code bank_ingest} the ingester's progress per account. Both make ingestion safe
+ * to repeat: a statement read twice, or by two nodes, applies each transaction once.
+ */
+@Repository
+public class BankTransactionRepository {
+    private final DataSource dataSource;
+
+    public BankTransactionRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Claims the next statement request for {@code account} if it is due, and makes the one after it due in
+     * {@code interval}. Only one claim succeeds per interval, however many nodes poll.
+     *
+     * @return where to continue reading, or {@code null} if the request is not due yet
+     */
+    public IngestState claimPoll(String account, Duration interval) throws PersistenceException {
+        String sql = """
+                UPDATE bank_ingest SET nextPollAt = now() + make_interval(secs => ?)
+                WHERE account = ? AND nextPollAt <= now()
+                RETURNING highWater, windowEnd, pageEnd
+                """;
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement pstm = con.prepareStatement(sql)) {
+            pstm.setDouble(1, interval.toMillis() / 1000.0);
+            pstm.setString(2, account);
+            try (ResultSet rs = pstm.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                return new IngestState(toInstant(rs.getTimestamp("highWater")), toInstant(rs.getTimestamp("windowEnd")),
+                        toInstant(rs.getTimestamp("pageEnd")));
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new PersistenceException("Failed to claim the statement poll");
+        }
+    }
+
+    public void saveProgress(String account, IngestState state) throws PersistenceException {
+        String sql = "UPDATE bank_ingest SET highWater = ?, windowEnd = ?, pageEnd = ? WHERE account = ?";
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement pstm = con.prepareStatement(sql)) {
+            pstm.setTimestamp(1, toTimestamp(state.highWater()));
+            pstm.setTimestamp(2, toTimestamp(state.windowEnd()));
+            pstm.setTimestamp(3, toTimestamp(state.pageEnd()));
+            pstm.setString(4, account);
+            pstm.executeUpdate();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new PersistenceException("Failed to save the ingest progress");
+        }
+    }
+
+    /** The batch as a table, from the six arrays bound by {@link #bindBatch}. */
+    private static final String BATCH = """
+            tx AS (
+                SELECT * FROM unnest(?::text[], ?::float8[], ?::text[], ?::timestamp[], ?::text[], ?::text[])
+                    WITH ORDINALITY AS t(transactionId, amount, description, time, firstname, lastname, position)
+            )
+            """;
+    /** The one verified user whose name matches transaction {@code t}, if there is exactly one. */
+    private static final String MATCH = """
+            LEFT JOIN LATERAL (
+                SELECT min(v.username) AS username FROM verification v
+                WHERE v.firstname = t.firstname AND v.lastname = t.lastname AND v.verified
+                HAVING count(*) = 1
+            ) m ON true
+            """;
+
+    /**
+     * Applies the transactions not applied before in one transaction: the batch is passed as arrays and
+     * matched to users on {@code verification_name_idx}, the matched users are locked in username order (as
+     * settling an event locks them, so the two queue rather than deadlock), and in one statement the
+     * transactions are recorded and every matched user's balance is changed once by the sum of their new
+     * transactions. A transaction is credited to (or, for a withdrawal, debited from) the one user whose
+     * verified first and last name match the payment description "&lt;prefix&gt; &lt;lastname&gt;
+     * &lt;firstname&gt;"; one matching no user, or more than one, is recorded without changing a balance.
+     *
+     * @return one result per transaction, in the order given; a repeated id counts once
+     */
+    public List<BankTransactionResult> apply(List<MonoBankDeposit> transactions) throws PersistenceException {
+        String lockSQL = """
+                WITH %s
+                SELECT u.username FROM users u
+                WHERE u.username IN (
+                    SELECT m.username FROM tx t
+                    %s
+                    WHERE NOT EXISTS (SELECT 1 FROM bank_transactions b WHERE b.transactionId = t.transactionId)
+                )
+                ORDER BY u.username
+                FOR UPDATE OF u
+                """.formatted(BATCH, MATCH);
+        String applySQL = """
+                WITH %s,
+                recorded AS (
+                    INSERT INTO bank_transactions (transactionId, amount, description, time, username)
+                    SELECT t.transactionId, t.amount, t.description, t.time, m.username
+                    FROM tx t
+                    %s
+                    ON CONFLICT (transactionId) DO NOTHING
+                    RETURNING transactionId, username
+                ),
+                credited AS (
+                    UPDATE users u SET balance = u.balance + c.total
+                    FROM (
+                        SELECT r.username, sum(t.amount) AS total FROM recorded r
+                        JOIN tx t ON t.transactionId = r.transactionId
+                        WHERE r.username IS NOT NULL
+                        GROUP BY r.username
+                    ) c
+                    WHERE u.username = c.username
+                )
+                SELECT r.transactionId IS NOT NULL AS recorded, r.username
+                FROM tx t
+                LEFT JOIN recorded r ON r.transactionId = t.transactionId
+                ORDER BY t.position
+                """.formatted(BATCH, MATCH);
+        Map<String, MonoBankDeposit> batch = new LinkedHashMap<>();
+        for (MonoBankDeposit tx : transactions) {
+            batch.putIfAbsent(tx.id(), tx);
+        }
+        List<MonoBankDeposit> unique = new ArrayList<>(batch.values());
+
+        List<BankTransactionResult> results = new ArrayList<>(unique.size());
+        try (Connection con = dataSource.getConnection()) {
+            con.setAutoCommit(false);
+            try (PreparedStatement lock = con.prepareStatement(lockSQL);
+                 PreparedStatement pstm = con.prepareStatement(applySQL)) {
+                bindBatch(con, lock, unique);
+                lock.executeQuery().close();
+                bindBatch(con, pstm, unique);
+                try (ResultSet rs = pstm.executeQuery()) {
+                    for (int i = 0; rs.next(); i++) {
+                        String username = rs.getString("username");
+                        BankTransactionResult.Outcome outcome = !rs.getBoolean("recorded") ? BankTransactionResult.Outcome.DUPLICATE
+                                : username == null ? BankTransactionResult.Outcome.UNMATCHED
+                                : BankTransactionResult.Outcome.CREDITED;
+                        results.add(new BankTransactionResult(unique.get(i), outcome, username));
+                    }
+                }
+                con.commit();
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new PersistenceException("Failed to apply bank transactions");
+        }
+        return results;
+    }
+
+    private static void bindBatch(Connection con, PreparedStatement pstm, List<MonoBankDeposit> batch) throws SQLException {
+        int size = batch.size();
+        String[] ids = new String[size];
+        Double[] amounts = new Double[size];
+        String[] descriptions = new String[size];
+        Timestamp[] times = new Timestamp[size];
+        String[] firstnames = new String[size];
+        String[] lastnames = new String[size];
+        for (int i = 0; i < size; i++) {
+            MonoBankDeposit tx = batch.get(i);
+            ids[i] = tx.id();
+            amounts[i] = tx.amount();
+            descriptions[i] = tx.description();
+            times[i] = toTimestamp(tx.depositDate());
+            String[] name = tx.description().split(" ");
+            if (name.length >= 3) {
+                firstnames[i] = name[2];
+                lastnames[i] = name[1];
+            }
+        }
+        pstm.setArray(1, con.createArrayOf("text", ids));
+        pstm.setArray(2, con.createArrayOf("float8", amounts));
+        pstm.setArray(3, con.createArrayOf("text", descriptions));
+        pstm.setArray(4, con.createArrayOf("timestamp", times));
+        pstm.setArray(5, con.createArrayOf("text", firstnames));
+        pstm.setArray(6, con.createArrayOf("text", lastnames));
+    }
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toInstant();
+    }
+
+    private static Timestamp toTimestamp(Instant instant) {
+        return instant == null ? null : Timestamp.from(instant);
+    }
+}
@@ -0,0 +1,163 @@
+package io.persistence;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.datarecords.Event;
+import io.datarecords.SettlementSummary;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Read-through cache in front of {@link EventRepository}. Single events are cached by eventId and the
+ * full list under one key; both are bounded in size and expire after {@code ttl}.
+ *
+ * Every write that goes through this class evicts the event it touched together with the full
+ * list, after the write committed. The TTL only bounds staleness for changes this process cannot
+ * see, such as another backend node or manual SQL. Cached events are immutable copies, so callers
+ * cannot corrupt them.
+ *
+ * Concurrent misses on one key share a single load. The load runs on the thread of the caller that
+ * missed first, but outside the cache's lock: a Caffeine loader runs inside a {@code ConcurrentHashMap}
+ * monitor, which would pin a virtual thread to its carrier for the whole query, and park every caller
+ * whose key hashes to the same bin.
+ *
+ * Hit, miss and eviction counts are published as {@code cache.*} meters tagged {@code events} and
+ * {@code events.all}.
+ *
+ * This is the application's {@link EventRepository} bean, so every caller reads from and invalidates
+ * the same cache.
+ */
+@Repository
+public class CachingEventRepository extends EventRepository {
+    private static final String ALL = "all";
+
+    private final AsyncCache<Integer, Event> events;
+    private final AsyncCache<String, List<Event>> allEvents;
+
+    public CachingEventRepository(DataSource dataSource,
+                                  @Value("${events.cache.maximum-size:10000}") long maximumSize,
+                                  @Value("${events.cache.ttl:PT30S}") Duration ttl) {
+        super(dataSource);
+        this.events = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        this.allEvents = Caffeine.newBuilder()
+                .maximumSize(1)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(Metrics.globalRegistry, events.synchronous(), "events");
+        CaffeineCacheMetrics.monitor(Metrics.globalRegistry, allEvents.synchronous(), "events.all");
+    }
+
+    @Override
+    public Event findEventById(int eventId) throws PersistenceException {
+        return load(events, eventId, () -> {
+            Event event = super.findEventById(eventId);
+            return event == null ? null : freeze(event);
+        });
+    }
+
+    @Override
+    public List<Event> getAll() throws PersistenceException {
+        return load(allEvents, ALL, () -> super.getAll().stream().map(CachingEventRepository::freeze).toList());
+    }
+
+    @Override
+    public Event createEvent(Event event) throws PersistenceException {
+        Event created = super.createEvent(event);
+        allEvents.synchronous().invalidateAll();
+        return created;
+    }
+
+    @Override
+    public void setPrivate(int eventId, String password) throws PersistenceException {
+        try {
+            super.setPrivate(eventId, password);
+        } finally {
+            evict(eventId);
+        }
+    }
+
+    @Override
+    public void setPublic(int eventId) throws PersistenceException {
+        try {
+            super.setPublic(eventId);
+        } finally {
+            evict(eventId);
+        }
+    }
+
+    @Override
+    public void setOpen(int eventId) throws PersistenceException {
+        try {
+            super.setOpen(eventId);
+        } finally {
+            evict(eventId);
+        }
+    }
+
+    @Override
+    public void setClosed(int eventId) throws PersistenceException {
+        try {
+            super.setClosed(eventId);
+        } finally {
+            evict(eventId);
+        }
+    }
+
+    @Override
+    public SettlementSummary setFinished(int eventId, String winnersAction) throws PersistenceException {
+        try {
+            return super.setFinished(eventId, winnersAction);
+        } finally {
+            evict(eventId);
+        }
+    }
+
+    @Override
+    public int updateCoefficient(int actionId, double coefficient) throws PersistenceException {
+        int eventId = super.updateCoefficient(actionId, coefficient);
+        if (eventId >= 0) {
+            evict(eventId);
+        }
+        return eventId;
+    }
+
+    @Override
+    public void evict(int eventId) {
+        events.synchronous().invalidate(eventId);
+        allEvents.synchronous().invalidateAll();
+    }
+
+    /**
+     * The cached value of {@code key}, or the one {@code loader} loads on this thread if no caller is
+     * loading it already. A failed or {@code null} load is not cached. The cache itself keeps the loads in
+     * flight, rather than a {@link Coalescer}, so that an eviction also drops a load that started before
+     * the write and would otherwise cache what the write changed.
+     */
+    private static <K, V> V load(AsyncCache<K, V> cache, K key, Coalescer.Call<V, PersistenceException> loader)
+            throws PersistenceException {
+        CompletableFuture<V> ours = new CompletableFuture<>();
+        CompletableFuture<V> value = cache.get(key, (k, executor) -> ours);
+        if (value == ours) {
+            Coalescer.complete(ours, loader);
+        }
+        return Coalescer.join(value, PersistenceException.class);
+    }
+
+    private static Event freeze(Event e) {
+        return new Event(e.event(), e.eventId(), e.budget(), e.stakeLimit(), e.playerLimit(), e.isOpen(),
+                e.isFinished(), e.isPublic(), e.creator(), e.password(), e.initialBudget(), e.timeCreated(),
+                e.timeFinished(), List.copyOf(e.actions()));
+    }
+}
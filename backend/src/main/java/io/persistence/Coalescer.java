@@ -0,0 +1,108 @@
+package io.persistence;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Shares one call per key between concurrent callers: a caller asking for a key while a call for it is in
+ * flight gets the outcome of that call instead of making another. Whatever a call throws, errors included,
+ * completes it, so no caller is left waiting on a call that will never finish.
+ *
+ * A finished call leaves the in-flight map before its outcome is handed out, so a caller woken by the
+ * outcome that asks again makes a new call rather than getting this finished one.
+ *
+ * The outcome future is shared; hand out {@link CompletableFuture#copy() copies} to callers that might
+ * complete or cancel theirs.
+ */
+public final class Coalescer<K, V> {
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    public interface Call<V, X extends Exception> {
+        V call() throws X;
+    }
+
+    /** The outcome of a call, and whether this caller made it. */
+    public record Flight<V>(CompletableFuture<V> outcome, boolean started) { }
+
+    /**
+     * Shares the call in flight for {@code key}, or makes {@code call} on this thread. A call made here has
+     * finished when this returns.
+     */
+    public Flight<V> run(K key, Call<V, ?> call) {
+        CompletableFuture<V> ours = new CompletableFuture<>();
+        CompletableFuture<V> flight = inFlight.putIfAbsent(key, ours);
+        if (flight != null) {
+            return new Flight<>(flight, false);
+        }
+        V value;
+        try {
+            value = call.call();
+        } catch (Throwable e) {
+            finish(key, ours, null, e);
+            return new Flight<>(ours, true);
+        }
+        finish(key, ours, value, null);
+        return new Flight<>(ours, true);
+    }
+
+    /**
+     * Shares the call in flight for {@code key}, or starts one with {@code start}, whose future completes
+     * the call.
+     */
+    public Flight<V> start(K key, Supplier<CompletableFuture<V>> start) {
+        CompletableFuture<V> ours = new CompletableFuture<>();
+        CompletableFuture<V> flight = inFlight.putIfAbsent(key, ours);
+        if (flight != null) {
+            return new Flight<>(flight, false);
+        }
+        try {
+            start.get().whenComplete((value, error) -> finish(key, ours, value, error));
+        } catch (Throwable e) {
+            finish(key, ours, null, e);
+        }
+        return new Flight<>(ours, true);
+    }
+
+    /** Completes {@code future} with the result of {@code call}, or with whatever it throws. */
+    public static <V> void complete(CompletableFuture<V> future, Call<V, ?> call) {
+        try {
+            future.complete(call.call());
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * Waits for {@code outcome} and returns its value. A failure is thrown as it was thrown by the call
+     * when it is a {@code failure}, an unchecked exception or an error.
+     */
+    public static <V, X extends Exception> V join(CompletableFuture<V> outcome, Class<X> failure) throws X {
+        try {
+            return outcome.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (failure.isInstance(cause)) {
+                throw failure.cast(cause);
+            }
+            if (cause instanceof RuntimeException unchecked) {
+                throw unchecked;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+
+    private void finish(K key, CompletableFuture<V> flight, V value, Throwable error) {
+        inFlight.remove(key, flight);
+        if (error == null) {
+            flight.complete(value);
+        } else {
+            flight.completeExceptionally(error);
+        }
+    }
+}
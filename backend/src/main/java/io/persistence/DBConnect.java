@@ -1,38 +1,82 @@
 package io.persistence;
 
+import com.zaxxer.hikari.HikariDataSource;
+
+import javax.sql.DataSource;
 import java.io.IOException;
 import java.io.InputStream;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.Properties;
 
+/**
+ * Owns the application's single connection pool. {@code db.properties} is read once, the first time
+ * the pool is needed; every repository borrows connections from the returned {@link DataSource}
+ * instead of opening its own.
+ *
+ * Pool keys live under {@code jdbc.pool.*}, see {@code db.properties.example}.
+ */
 public class DBConnect {
     private static String namespace = "jdbc";
 
-    public static Connection getConnection() {
-        Connection con = null;
+    private static class Holder {
+        private static final HikariDataSource DATA_SOURCE = createDataSource(loadProperties());
+    }
+
+    public static DataSource getDataSource() {
+        return Holder.DATA_SOURCE;
+    }
+
+    public static Connection getConnection() throws SQLException {
+        return getDataSource().getConnection();
+    }
+
+    static Properties loadProperties() {
         Properties prop = new Properties();
-        try (InputStream dbProperties = DBConnect.class.getClassLoader().getResourceAsStream("db.properties");
-             ) {
+        try (InputStream dbProperties = DBConnect.class.getClassLoader().getResourceAsStream("db.properties")) {
+            if (dbProperties == null) {
+                throw new IllegalStateException("db.properties not found on the classpath");
+            }
             prop.load(dbProperties);
-            String host = prop.getProperty(namespace + ".host");
-            String port = prop.getProperty(namespace + ".port");
-            String dbname = prop.getProperty(namespace + ".dbname");
-            String schema = prop.getProperty(namespace + ".schema");
-            String username = prop.getProperty(namespace + ".username");
-            String password = prop.getProperty(namespace + ".password");
-            String url = "jdbc:postgresql://" + host + ":" + port + "/" + dbname;
-
-            Properties connectionProps = new Properties();
-            connectionProps.setProperty("user", username);
-            connectionProps.setProperty("password", password);
-            connectionProps.setProperty("currentSchema", schema);
-
-            con = DriverManager.getConnection(url, connectionProps);
-        } catch (IOException | SQLException e) {
-            e.printStackTrace();
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read db.properties", e);
         }
-        return con;
+        return prop;
+    }
+
+    static HikariDataSource createDataSource(Properties prop) {
+        String host = prop.getProperty(namespace + ".host");
+        String port = prop.getProperty(namespace + ".port");
+        String dbname = prop.getProperty(namespace + ".dbname");
+        String schema = prop.getProperty(namespace + ".schema");
+        String username = prop.getProperty(namespace + ".username");
+        String password = prop.getProperty(namespace + ".password");
+
+        // The no-arg constructor starts the pool lazily on the first getConnection(), so the
+        // application context can come up before the database is reachable.
+        HikariDataSource dataSource = new HikariDataSource();
+        dataSource.setPoolName("bettingPool");
+        dataSource.setJdbcUrl("jdbc:postgresql://" + host + ":" + port + "/" + dbname);
+        dataSource.setUsername(username);
+        dataSource.setPassword(password);
+        dataSource.setSchema(schema);
+        dataSource.setMaximumPoolSize(intProperty(prop, "pool.maximumPoolSize", 10));
+        dataSource.setMinimumIdle(intProperty(prop, "pool.minimumIdle", 2));
+        dataSource.setConnectionTimeout(longProperty(prop, "pool.connectionTimeoutMs", 5_000));
+        dataSource.setIdleTimeout(longProperty(prop, "pool.idleTimeoutMs", 600_000));
+        dataSource.setMaxLifetime(longProperty(prop, "pool.maxLifetimeMs", 1_800_000));
+        dataSource.setLeakDetectionThreshold(longProperty(prop, "pool.leakDetectionThresholdMs", 20_000));
+        dataSource.setRegisterMbeans(true);
+        return dataSource;
+    }
+
+    private static int intProperty(Properties prop, String key, int defaultValue) {
+        String value = prop.getProperty(namespace + "." + key);
+        return value == null || value.isBlank() ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    private static long longProperty(Properties prop, String key, long defaultValue) {
+        String value = prop.getProperty(namespace + "." + key);
+        return value == null || value.isBlank() ? defaultValue : Long.parseLong(value.trim());
     }
 }
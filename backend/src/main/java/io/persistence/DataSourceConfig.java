@@ -0,0 +1,20 @@
+package io.persistence;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class DataSourceConfig {
+
+    /**
+     * Exposes the pool from {@link DBConnect} as the context's only {@link DataSource}, so actuator
+     * binds the {@code hikaricp.connections.*} meters (acquire time, usage, pending threads) to it.
+     * Statements are counted on the way, see {@link InstrumentedDataSource}.
+     */
+    @Bean(destroyMethod = "close")
+    public DataSource dataSource() {
+        return new InstrumentedDataSource(DBConnect.getDataSource());
+    }
+}
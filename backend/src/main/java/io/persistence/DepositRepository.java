@@ -1,27 +1,93 @@
 package io.persistence;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import io.datarecords.MonoBankDeposit;
-import org.apache.hc.client5.http.classic.methods.HttpGet;
-import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
-import org.apache.hc.core5.http.io.entity.EntityUtils;
+import jakarta.annotation.PreDestroy;
+import org.apache.hc.client5.http.async.methods.AbstractBinResponseConsumer;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * Reads the statement of the Monobank account the token belongs to. Monobank allows one statement request
+ * per minute and returns at most {@value #STATEMENT_LIMIT} transactions, newest first; pacing and paging
+ * are up to the caller, see {@link io.businessLogic.DepositLogic}.
+ *
+ * Requests go through one non-blocking client with a pool of kept-alive connections, and statements are
+ * parsed as they stream in. Callers asking for the same window while it is being fetched share that one
+ * request, which also keeps them within the bank's rate limit.
+ */
+@Repository
 public class DepositRepository {
-    private static long lastFetchTime = 0;
-    private static String cachedAccountId = null;
-    private String getToken() {
+    public static final int STATEMENT_LIMIT = 500;
+
+    private final String baseUrl;
+    private final String token;
+    private final Duration requestTimeout;
+    private final CloseableHttpAsyncClient client;
+    private final Coalescer<String, List<MonoBankDeposit>> requests = new Coalescer<>();
+
+    @Autowired
+    public DepositRepository(@Value("${monobank.url:https://api.monobank.ua}") String baseUrl,
+                             @Value("${monobank.token:}") String token,
+                             @Value("${monobank.connect-timeout:PT5S}") Duration connectTimeout,
+                             @Value("${monobank.request-timeout:PT30S}") Duration requestTimeout) {
+        this.baseUrl = baseUrl;
+        this.token = token.isBlank() ? getToken() : token;
+        this.requestTimeout = requestTimeout;
+        this.client = HttpAsyncClients.custom()
+                .setConnectionManager(PoolingAsyncClientConnectionManagerBuilder.create()
+                        .setMaxConnPerRoute(4)
+                        .setDefaultConnectionConfig(ConnectionConfig.custom()
+                                .setConnectTimeout(Timeout.of(connectTimeout))
+                                .build())
+                        .build())
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setResponseTimeout(Timeout.of(requestTimeout))
+                        .build())
+                // The default strategy retries a 429 after a pause; a rate-limited request waits for the
+                // next poll instead.
+                .disableAutomaticRetries()
+                .build();
+        this.client.start();
+    }
+
+    public DepositRepository(String baseUrl, String token) {
+        this(baseUrl, token, Duration.ofSeconds(5), Duration.ofSeconds(30));
+    }
+
+    private static String getToken() {
         Properties prop = new Properties();
         try (InputStream dbProperties = DepositRepository.class.getClassLoader().getResourceAsStream("token.properties");
         ) {
+            if (dbProperties == null) {
+                return null;
+            }
             prop.load(dbProperties);
             return prop.getProperty("token");
         } catch (IOException e) {
@@ -30,101 +96,121 @@ public class DepositRepository {
         return null;
     }
 
-    public List<MonoBankDeposit> getLatestTransactions() throws PersistenceException {
-        List<MonoBankDeposit> deposits = new ArrayList<>();
-        String token = getToken();
-        if (token == null) {
-            throw new PersistenceException("No token found");
-        }
-        String accountId = getMainAccountId(token);
-        if (accountId == null) {
-            throw new PersistenceException("Internal account issue");
-        }
-        long from = Instant.now().minusSeconds(60).getEpochSecond();
-        long to = Instant.now().getEpochSecond();
-        String url = String.format("https://api.monobank.ua/personal/statement/0/%d/%d", from, to);
-        try (CloseableHttpClient client = HttpClients.createDefault()) {
-            HttpGet request = new HttpGet(url);
-            request.setHeader("X-Token", token);
-            String response = client.execute(request, httpResponse ->
-                    EntityUtils.toString(httpResponse.getEntity()));
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode transactions = mapper.readTree(response);
-            for (JsonNode tx : transactions) {
-                long time = tx.get("time").asLong();
-                double amount = tx.get("amount").asDouble()/100;
-                String description = tx.has("description") ? tx.get("description").asText() : "N/A";
-                if(amount>=0){
-                    MonoBankDeposit mbd = new MonoBankDeposit(amount, description, Instant.ofEpochSecond(time));
-                    deposits.add(mbd);
-                 }
-            }
-            return deposits;
-        } catch (IOException e) {
-            throw new PersistenceException("Deposits are not gathered");
+    @PreDestroy
+    public void close() {
+        client.close(CloseMode.GRACEFUL);
+    }
+
+    /** Whether a token was configured; without one there is no statement to read. */
+    public boolean isConfigured() {
+        return token != null && !token.isBlank();
+    }
+
+    /**
+     * The deposits (positive amounts) and withdrawals (negative amounts) of the default account between
+     * {@code from} and {@code to}, newest first. Waits at most {@code monobank.request-timeout}.
+     */
+    public List<MonoBankDeposit> getStatement(Instant from, Instant to) throws PersistenceException {
+        try {
+            return fetchStatement(from, to).get(requestTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new PersistenceException("Statement not gathered: " + e.getCause().getMessage());
+        } catch (TimeoutException e) {
+            throw new PersistenceException("Statement not gathered within " + requestTimeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PersistenceException("Statement not gathered: interrupted");
         }
     }
-    public String getMainAccountId(String token) throws PersistenceException {
-        long now = System.currentTimeMillis();
-        if (cachedAccountId != null && now - lastFetchTime < 61000) {
-            return cachedAccountId;
+
+    /**
+     * {@link #getStatement} without blocking. A caller cancelling its future does not cancel the request
+     * for the others sharing it.
+     */
+    public CompletableFuture<List<MonoBankDeposit>> fetchStatement(Instant from, Instant to) {
+        if (!isConfigured()) {
+            return CompletableFuture.failedFuture(new PersistenceException("No token found"));
         }
-        String url = "https://api.monobank.ua/personal/client-info";
-        try (CloseableHttpClient client = HttpClients.createDefault()) {
-            HttpGet request = new HttpGet(url);
-            request.setHeader("X-Token", token);
-            String response = client.execute(request, httpResponse ->
-                    EntityUtils.toString(httpResponse.getEntity()));
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode node = mapper.readTree(response);
-            JsonNode accounts = node.get("accounts");
-            if (accounts == null || !accounts.isArray() || accounts.isEmpty()) {
-                return null;
+        String url = String.format("%s/personal/statement/0/%d/%d", baseUrl, from.getEpochSecond(), to.getEpochSecond());
+        return requests.start(url, () -> {
+            CompletableFuture<List<MonoBankDeposit>> request = new CompletableFuture<>();
+            StatementConsumer consumer = new StatementConsumer();
+            client.execute(
+                    SimpleRequestProducer.create(SimpleRequestBuilder.get(url).addHeader("X-Token", token).build()),
+                    consumer,
+                    new FutureCallback<>() {
+                        @Override
+                        public void completed(List<MonoBankDeposit> transactions) {
+                            if (consumer.failure != null) {
+                                request.completeExceptionally(consumer.failure);
+                            } else {
+                                request.complete(transactions);
+                            }
+                        }
+
+                        @Override
+                        public void failed(Exception e) {
+                            request.completeExceptionally(e);
+                        }
+
+                        @Override
+                        public void cancelled() {
+                            request.cancel(false);
+                        }
+                    });
+            return request;
+        }).outcome().copy();
+    }
+
+    /**
+     * Streams a 200 response through a {@link StatementParser}; any other response is kept whole for the
+     * error message. A failed response completes with {@code null} and leaves the reason in {@link #failure}.
+     */
+    private static final class StatementConsumer extends AbstractBinResponseConsumer<List<MonoBankDeposit>> {
+        private int status;
+        private StatementParser parser;
+        private final ByteArrayOutputStream error = new ByteArrayOutputStream();
+        private volatile IOException failure;
+
+        @Override
+        protected void start(HttpResponse response, ContentType contentType) throws IOException {
+            status = response.getCode();
+            if (status == 200) {
+                parser = new StatementParser();
             }
-            cachedAccountId = accounts.get(0).get("id").asText();
-            lastFetchTime = now;
-            return cachedAccountId;
-        } catch (IOException e) {
-            throw new PersistenceException("Failed to get Monobank account ID: " + e.getMessage());
         }
-    }
-    public List<MonoBankDeposit> getLatestWithdrawal() throws PersistenceException {
-        List<MonoBankDeposit> deposits = new ArrayList<>();
-        String token = getToken();
-        if (token == null) {
-            throw new PersistenceException("No token found");
+
+        @Override
+        protected int capacityIncrement() {
+            return 64 * 1024;
         }
-        String accountId = getMainAccountId(token);
-        if (accountId == null) {
-            throw new PersistenceException("Internal account issue");
+
+        @Override
+        protected void data(ByteBuffer src, boolean endOfStream) throws IOException {
+            if (parser != null) {
+                parser.feed(src);
+            } else {
+                byte[] bytes = new byte[src.remaining()];
+                src.get(bytes);
+                error.write(bytes);
+            }
         }
-        long from = Instant.now().minusSeconds(600).getEpochSecond();
-        long to = Instant.now().getEpochSecond();
-        String url = String.format("https://api.monobank.ua/personal/statement/0/%d/%d", from, to);
-        try (CloseableHttpClient client = HttpClients.createDefault()) {
-            HttpGet request = new HttpGet(url);
-            request.setHeader("X-Token", token);
-            String response = client.execute(request, httpResponse ->
-                    EntityUtils.toString(httpResponse.getEntity()));
-            ObjectMapper mapper = new ObjectMapper();
-            JsonNode transactions = mapper.readTree(response);
-            System.out.println(transactions);
-
-            for (JsonNode tx : transactions) {
-                long time = tx.get("time").asLong();
-                double amount = tx.get("amount").asDouble()/100;
-                String description = tx.has("description") ? tx.get("description").asText() : "N/A";
-                if(amount<0){
-                    MonoBankDeposit mbd = new MonoBankDeposit(amount, description, Instant.ofEpochSecond(time));
-                    deposits.add(mbd);
+
+        @Override
+        protected List<MonoBankDeposit> buildResult() {
+            try {
+                if (parser == null) {
+                    throw new IOException("Statement request answered " + status + ": " + error.toString(StandardCharsets.UTF_8));
                 }
+                return List.copyOf(parser.finish());
+            } catch (IOException e) {
+                failure = e;
+                return null;
             }
-            return deposits;
-        } catch (IOException e) {
-            throw new PersistenceException("Deposits are not gathered");
         }
-    }
 
+        @Override
+        public void releaseResources() {
+        }
+    }
 }
-
-
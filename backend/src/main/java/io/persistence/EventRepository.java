@@ -1,16 +1,33 @@
 package io.persistence;
 
 import io.datarecords.Action;
+import io.datarecords.ActionTotal;
 import io.datarecords.Event;
+import io.datarecords.EventCursor;
+import io.datarecords.EventFilter;
 import io.datarecords.Participation;
+import io.datarecords.SettlementSummary;
 
+import javax.sql.DataSource;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 public class EventRepository {
+    private static final String EVENTS_WITH_ACTIONS = """
+            SELECT e.*, a.actionId, a.action, a.coefficient
+            FROM events e
+            LEFT JOIN actions a ON a.eventId = e.eventId
+            """;
+    private final DataSource dataSource;
+
+    public EventRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
 
     public Event createEvent(Event event) throws PersistenceException {
         String insertEventSQL = """
@@ -29,7 +46,7 @@ public class EventRepository {
         String updateUserBalanceSQL = """
                 UPDATE users SET balance = balance - ? WHERE username = ?
                 """;
-        try (Connection con = DBConnect.getConnection()) {
+        try (Connection con = dataSource.getConnection()) {
             con.setAutoCommit(false);
 
             try (
@@ -97,7 +114,7 @@ public class EventRepository {
     public void setPrivate(int eventId, String password) throws PersistenceException {
         String sql = "UPDATE events SET isPublic=?, password=? WHERE eventId=?";
 
-        try(Connection con = DBConnect.getConnection()){
+        try(Connection con = dataSource.getConnection()){
             con.setAutoCommit(false);
             try(PreparedStatement pstm = con.prepareStatement(sql)){
                 pstm.setBoolean(1,false);
@@ -116,7 +133,7 @@ public class EventRepository {
     }
     public void setPublic(int eventId) throws PersistenceException {
         String sql = "UPDATE events SET isPublic=?, password=? WHERE eventId=?";
-        try(Connection con = DBConnect.getConnection()){
+        try(Connection con = dataSource.getConnection()){
             con.setAutoCommit(false);
             try(PreparedStatement pstm = con.prepareStatement(sql)){
                 pstm.setBoolean(1,true);
@@ -133,106 +150,142 @@ public class EventRepository {
             throw new PersistenceException("Failed to set public");
         }
     }
-    public void setFinished(int eventId, String winnersAction) throws PersistenceException {
-        String markEventFinishedSQL = "UPDATE events SET isFinished = true WHERE eventId = ?";
-        String markWinnersSQL = """
-        UPDATE participations SET hasWon = true
-        WHERE actionId IN (
-            SELECT actionId FROM actions WHERE eventId = ? AND action = ?
-        )
-    """;
-        String markLosersSQL = """
-        UPDATE participations SET hasWon = false
-        WHERE actionId IN (
-            SELECT actionId FROM actions WHERE eventId = ? AND action != ?
-        )
-    """;
-        String payWinnersSQL = """
-        UPDATE users SET balance = balance + p.potentialWin
-        FROM participations p
-        JOIN actions a ON p.actionId = a.actionId
-        WHERE users.username = p.username AND a.eventId = ? AND a.action = ?
-    """;
-        String chargeLosersSQL = """
-        UPDATE users SET balance = balance - p.stake
-        FROM participations p
-        JOIN actions a ON p.actionId = a.actionId
-        WHERE users.username = p.username AND a.eventId = ? AND a.action != ?
-    """;
-        String getBudgetAndCreatorSQL = "SELECT budget, creator FROM events WHERE eventId = ?";
-        String getTotalPayoutSQL = """
-        SELECT SUM(p.potentialWin) AS payout
-        FROM participations p
-        JOIN actions a ON p.actionId = a.actionId
-        WHERE a.eventId = ? AND a.action = ?
-    """;
-        String updateBudgetSQL = "UPDATE events SET budget = budget - ? WHERE eventId = ?";
-        String moneyReturnSQL = "UPDATE users SET balance = balance + ? WHERE username = ?";
-        try (Connection con = DBConnect.getConnection()) {
+    /**
+     * Settles an event in one transaction. The event row is locked first, which also makes concurrent
+     * bets on it wait until the settlement committed. A single statement then marks every bet, credits
+     * winners, charges losers, refunds the creator from the remaining budget and closes the event, so
+     * the participations are read once and every user row is updated at most once.
+     */
+    public SettlementSummary setFinished(int eventId, String winnersAction) throws PersistenceException {
+        try (Connection con = dataSource.getConnection()) {
             con.setAutoCommit(false);
-            try (
-                    PreparedStatement markEventFinished = con.prepareStatement(markEventFinishedSQL);
-                    PreparedStatement markWinners = con.prepareStatement(markWinnersSQL);
-                    PreparedStatement markLosers = con.prepareStatement(markLosersSQL);
-                    PreparedStatement payWinners = con.prepareStatement(payWinnersSQL);
-                    PreparedStatement chargeLosers = con.prepareStatement(chargeLosersSQL);
-                    PreparedStatement getBudgetAndCreator = con.prepareStatement(getBudgetAndCreatorSQL);
-                    PreparedStatement moneyReturn = con.prepareStatement(moneyReturnSQL);
-                    PreparedStatement updateBudget = con.prepareStatement(updateBudgetSQL);
-                    PreparedStatement getTotalPayout = con.prepareStatement(getTotalPayoutSQL)
-            ) {
-                markEventFinished.setInt(1, eventId);
-                markEventFinished.executeUpdate();
-                markWinners.setInt(1, eventId);
-                markWinners.setString(2, winnersAction);
-                markWinners.executeUpdate();
-                markLosers.setInt(1, eventId);
-                markLosers.setString(2, winnersAction);
-                markLosers.executeUpdate();
-                payWinners.setInt(1, eventId);
-                payWinners.setString(2, winnersAction);
-                payWinners.executeUpdate();
-                chargeLosers.setInt(1, eventId);
-                chargeLosers.setString(2, winnersAction);
-                chargeLosers.executeUpdate();
-                getBudgetAndCreator.setInt(1, eventId);
-                ResultSet rs = getBudgetAndCreator.executeQuery();
-                double budget = 0;
-                String creator = null;
-                if (rs.next()) {
-                    budget = rs.getDouble("budget");
-                    creator = rs.getString("creator");
-                }
-                getTotalPayout.setInt(1, eventId);
-                getTotalPayout.setString(2, winnersAction);
-                ResultSet payoutRS = getTotalPayout.executeQuery();
-                double payout = 0;
-                if (payoutRS.next()) {
-                    payout = payoutRS.getDouble("payout");
-                }
-
-                double refund = budget - payout;
-                if (refund > 0 && creator != null) {
-                    moneyReturn.setDouble(1, refund);
-                    moneyReturn.setString(2, creator);
-                    moneyReturn.executeUpdate();
-                    updateBudget.setDouble(1, payout);
-                    updateBudget.setInt(2, eventId);
-                    updateBudget.executeUpdate();
-                }
+            try {
+                SettlementSummary summary = settle(con, eventId, winnersAction);
                 con.commit();
-            } catch (SQLException e) {
-                e.printStackTrace();
+                return summary;
+            } catch (SQLException | PersistenceException e) {
                 con.rollback();
+                throw e;
             }
         } catch (SQLException e) {
             e.printStackTrace();
             throw new PersistenceException("Failed to set finished");
         }
     }
+
+    /**
+     * The settlement of {@link #setFinished} on the caller's connection and transaction, which the caller
+     * commits or rolls back.
+     */
+    static SettlementSummary settle(Connection con, int eventId, String winnersAction)
+            throws SQLException, PersistenceException {
+        String lockEventSQL = """
+                SELECT e.isFinished,
+                       EXISTS (SELECT 1 FROM actions a WHERE a.eventId = e.eventId AND a.action = ?) AS hasAction
+                FROM events e
+                WHERE e.eventId = ?
+                FOR UPDATE
+                """;
+        // Settlements of events that share bettors would otherwise lock those users in plan order and
+        // deadlock each other; taking the locks in username order first makes them queue instead.
+        String lockUsersSQL = """
+                SELECT 1 FROM users
+                WHERE username IN (
+                    SELECT p.username FROM participations p
+                    JOIN actions a ON a.actionId = p.actionId
+                    WHERE a.eventId = ?
+                    UNION
+                    SELECT creator FROM events WHERE eventId = ?
+                )
+                ORDER BY username
+                FOR UPDATE
+                """;
+        String settleSQL = """
+                WITH bets AS (
+                    SELECT p.actionId, p.username, p.stake, p.potentialWin, a.action = ? AS won
+                    FROM participations p
+                    JOIN actions a ON a.actionId = p.actionId
+                    WHERE a.eventId = ?
+                ),
+                totals AS (
+                    SELECT count(*) FILTER (WHERE won) AS winningBets,
+                           count(*) FILTER (WHERE NOT won) AS losingBets,
+                           coalesce(sum(potentialWin) FILTER (WHERE won), 0) AS payout,
+                           coalesce(sum(stake) FILTER (WHERE NOT won), 0) AS lostStakes
+                    FROM bets
+                ),
+                event AS (
+                    SELECT e.creator, greatest(e.budget - t.payout, 0) AS refund
+                    FROM events e, totals t
+                    WHERE e.eventId = ?
+                ),
+                marked AS (
+                    UPDATE participations p SET hasWon = b.won
+                    FROM bets b
+                    WHERE p.actionId = b.actionId AND p.username = b.username
+                ),
+                credits AS (
+                    SELECT username, sum(amount) AS amount
+                    FROM (
+                        SELECT username, CASE WHEN won THEN potentialWin ELSE -stake END AS amount FROM bets
+                        UNION ALL
+                        SELECT creator, refund FROM event WHERE creator IS NOT NULL AND refund > 0
+                    ) c
+                    GROUP BY username
+                ),
+                credited AS (
+                    UPDATE users u SET balance = u.balance + c.amount
+                    FROM credits c
+                    WHERE u.username = c.username
+                    RETURNING u.username
+                ),
+                finished AS (
+                    UPDATE events e
+                    SET isFinished = true,
+                        timeFinished = now(),
+                        budget = CASE WHEN v.creator IS NOT NULL AND v.refund > 0 THEN e.budget - t.payout ELSE e.budget END
+                    FROM totals t, event v
+                    WHERE e.eventId = ?
+                )
+                SELECT t.winningBets, t.losingBets, t.payout, t.lostStakes,
+                       CASE WHEN v.creator IS NOT NULL THEN v.refund ELSE 0 END AS creatorRefund,
+                       (SELECT count(*) FROM credited) AS usersCredited
+                FROM totals t, event v
+                """;
+        try (PreparedStatement lockEvent = con.prepareStatement(lockEventSQL);
+             PreparedStatement lockUsers = con.prepareStatement(lockUsersSQL);
+             PreparedStatement settle = con.prepareStatement(settleSQL)) {
+            lockEvent.setString(1, winnersAction);
+            lockEvent.setInt(2, eventId);
+            try (ResultSet rs = lockEvent.executeQuery()) {
+                if (!rs.next()) {
+                    throw new PersistenceException("Event not found");
+                }
+                if (rs.getBoolean("isFinished")) {
+                    throw new PersistenceException("Event is already finished");
+                }
+                if (!rs.getBoolean("hasAction")) {
+                    throw new PersistenceException("Event has no action " + winnersAction);
+                }
+            }
+            lockUsers.setInt(1, eventId);
+            lockUsers.setInt(2, eventId);
+            lockUsers.executeQuery().close();
+            settle.setString(1, winnersAction);
+            settle.setInt(2, eventId);
+            settle.setInt(3, eventId);
+            settle.setInt(4, eventId);
+            try (ResultSet rs = settle.executeQuery()) {
+                rs.next();
+                return new SettlementSummary(eventId, winnersAction, rs.getInt("winningBets"),
+                        rs.getInt("losingBets"), rs.getDouble("payout"), rs.getDouble("lostStakes"),
+                        rs.getDouble("creatorRefund"), rs.getInt("usersCredited"));
+            }
+        }
+    }
     public void setOpen(int eventId) throws PersistenceException {
         String sql = "UPDATE events SET isOpen=? WHERE eventId=?";
-        try(Connection con = DBConnect.getConnection()){
+        try(Connection con = dataSource.getConnection()){
             con.setAutoCommit(false);
             try(PreparedStatement pstm = con.prepareStatement(sql)){
                 pstm.setBoolean(1,true);
@@ -250,7 +303,7 @@ public class EventRepository {
     }
     public void setClosed(int eventId) throws PersistenceException {
         String sql = "UPDATE events SET isOpen=? WHERE eventId=?";
-        try(Connection con = DBConnect.getConnection()){
+        try(Connection con = dataSource.getConnection()){
             con.setAutoCommit(false);
             try(PreparedStatement pstm = con.prepareStatement(sql)){
                 pstm.setBoolean(1,false);
@@ -266,76 +319,208 @@ public class EventRepository {
             throw new PersistenceException("Failed to set closed");
         }
     }
-    public Event getEventById(int eventId) throws PersistenceException {
-        return getAll().stream().filter(e -> e.eventId() == eventId).findFirst().orElse(null);
+    public Event findEventById(int eventId) throws PersistenceException {
+        String sql = EVENTS_WITH_ACTIONS + " WHERE e.eventId = ? ORDER BY a.actionId";
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement pstm = con.prepareStatement(sql)) {
+            pstm.setInt(1, eventId);
+            List<Event> events = new ArrayList<>(1);
+            try (ResultSet rs = pstm.executeQuery()) {
+                readEvents(rs, events::add);
+            }
+            return events.isEmpty() ? null : events.get(0);
+        } catch (SQLException e) {
+            throw new PersistenceException("Error fetching event " + eventId);
+        }
     }
 
     public List<Event> getAll() throws PersistenceException {
-        String eventSQL = "SELECT * FROM events";
-        String actionSQL = "SELECT * FROM actions WHERE eventId = ?";
+        String sql = EVENTS_WITH_ACTIONS + " ORDER BY e.eventId, a.actionId";
         List<Event> events = new ArrayList<>();
 
-        try (Connection con = DBConnect.getConnection();
-             PreparedStatement eventStmt = con.prepareStatement(eventSQL);
-             PreparedStatement actionStmt = con.prepareStatement(actionSQL)) {
-
-            ResultSet eventRS = eventStmt.executeQuery();
-            while (eventRS.next()) {
-                int eventId = eventRS.getInt("eventId");
-                List<Action> actions = new ArrayList<>();
-                actionStmt.setInt(1, eventId);
-                try (ResultSet actionRS = actionStmt.executeQuery()) {
-                    while (actionRS.next()) {
-                        actions.add(new Action(
-                                actionRS.getInt("actionId"),
-                                actionRS.getString("action"),
-                                actionRS.getDouble("coefficient"),
-                                null
-                        ));
-                    }
-                }
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement pstm = con.prepareStatement(sql);
+             ResultSet rs = pstm.executeQuery()) {
+            readEvents(rs, events::add);
+        } catch (SQLException e) {
+            throw new PersistenceException("Error fetching events");
+        }
 
-                Timestamp finishedTS = eventRS.getTimestamp("timeFinished");
+        return events;
+    }
 
-                Event event = new Event(
-                        eventRS.getString("event"),
-                        eventId,
-                        eventRS.getDouble("budget"),
-                        eventRS.getDouble("stakeLimit"),
-                        eventRS.getInt("playerLimit"),
-                        eventRS.getBoolean("isOpen"),
-                        eventRS.getBoolean("isFinished"),
-                        eventRS.getBoolean("isPublic"),
-                        eventRS.getString("creator"),
-                        eventRS.getString("password"),
-                        eventRS.getDouble("initialbudget"),
-                        eventRS.getTimestamp("timeCreated").toLocalDateTime(),
-                        finishedTS != null ? finishedTS.toLocalDateTime() : null,
-                        actions
-                );
+    /**
+     * Returns at most {@code limit} events after {@code after} in (timeCreated, eventId) order, newest
+     * or oldest first. Seeking on the key instead of an OFFSET keeps every page an index range scan,
+     * so its cost depends on the page size and not on how deep the client has paged.
+     *
+     * With {@code withActions} the page and its actions come back in one round trip; without it only
+     * the event columns are read. Event passwords are never part of the listing.
+     */
+    public List<Event> findPage(EventFilter filter, EventCursor after, int limit, boolean withActions) throws PersistenceException {
+        List<String> conditions = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+        if (filter.isOpen() != null) {
+            conditions.add("e.isOpen = ?");
+            params.add(filter.isOpen());
+        }
+        if (filter.isFinished() != null) {
+            conditions.add("e.isFinished = ?");
+            params.add(filter.isFinished());
+        }
+        if (filter.isPublic() != null) {
+            conditions.add("e.isPublic = ?");
+            params.add(filter.isPublic());
+        }
+        if (filter.creator() != null && !filter.creator().isBlank()) {
+            conditions.add("e.creator = ?");
+            params.add(filter.creator());
+        }
+        if (filter.search() != null && !filter.search().isBlank()) {
+            conditions.add("e.event ILIKE ?");
+            params.add("%" + filter.search().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%");
+        }
+        String direction = filter.newestFirst() ? "DESC" : "ASC";
+        if (after != null) {
+            conditions.add("(e.timeCreated, e.eventId) " + (filter.newestFirst() ? "<" : ">") + " (?, ?)");
+            params.add(Timestamp.valueOf(after.timeCreated()));
+            params.add(after.eventId());
+        }
+        String pageSQL = """
+                SELECT e.event, e.eventId, e.budget, e.stakeLimit, e.playerLimit, e.isOpen, e.isFinished,
+                       e.isPublic, e.creator, NULL AS password, e.initialbudget, e.timeCreated, e.timeFinished
+                FROM events e
+                %s
+                ORDER BY e.timeCreated %s, e.eventId %s
+                LIMIT ?
+                """.formatted(conditions.isEmpty() ? "" : "WHERE " + String.join(" AND ", conditions), direction, direction);
+        String sql = withActions ? """
+                WITH e AS (%s)
+                SELECT e.*, a.actionId, a.action, a.coefficient
+                FROM e
+                LEFT JOIN actions a ON a.eventId = e.eventId
+                ORDER BY e.timeCreated %s, e.eventId %s, a.actionId
+                """.formatted(pageSQL, direction, direction) : pageSQL;
+        params.add(limit);
 
-                events.add(event);
+        List<Event> events = new ArrayList<>();
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement pstm = con.prepareStatement(sql)) {
+            for (int i = 0; i < params.size(); i++) {
+                pstm.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = pstm.executeQuery()) {
+                if (withActions) {
+                    readEvents(rs, events::add);
+                } else {
+                    while (rs.next()) {
+                        events.add(mapEvent(rs, List.of()));
+                    }
+                }
             }
         } catch (SQLException e) {
-            throw new PersistenceException("Error fetching events");
+            throw new PersistenceException("Error fetching event page");
         }
-
         return events;
     }
-    public void updateCoefficient(int actionId,double coefficient) throws PersistenceException {
-        String sql = "UPDATE actions SET coefficient=? WHERE actionid=?";
-        try(Connection con = DBConnect.getConnection()){
+
+    /**
+     * Stitches rows of {@link #EVENTS_WITH_ACTIONS}, ordered by eventId, into events. Each event is
+     * handed to {@code consumer} as soon as the first row of the next event (or the end) is seen.
+     */
+    private static void readEvents(ResultSet rs, Consumer<Event> consumer) throws SQLException {
+        Event current = null;
+        while (rs.next()) {
+            int eventId = rs.getInt("eventId");
+            if (current == null || current.eventId() != eventId) {
+                if (current != null) {
+                    consumer.accept(current);
+                }
+                current = mapEvent(rs, new ArrayList<>());
+            }
+            int actionId = rs.getInt("actionId");
+            if (!rs.wasNull()) {
+                current.actions().add(new Action(actionId, rs.getString("action"), rs.getDouble("coefficient"), null));
+            }
+        }
+        if (current != null) {
+            consumer.accept(current);
+        }
+    }
+    static Event mapEvent(ResultSet rs, List<Action> actions) throws SQLException {
+        Timestamp finishedTS = rs.getTimestamp("timeFinished");
+        return new Event(
+                rs.getString("event"),
+                rs.getInt("eventId"),
+                rs.getDouble("budget"),
+                rs.getDouble("stakeLimit"),
+                rs.getInt("playerLimit"),
+                rs.getBoolean("isOpen"),
+                rs.getBoolean("isFinished"),
+                rs.getBoolean("isPublic"),
+                rs.getString("creator"),
+                rs.getString("password"),
+                rs.getDouble("initialbudget"),
+                rs.getTimestamp("timeCreated").toLocalDateTime(),
+                finishedTS != null ? finishedTS.toLocalDateTime() : null,
+                actions
+        );
+    }
+    /**
+     * Stake aggregates of every action of the event, one indexed read of {@code action_totals}.
+     * Actions nobody bet on yet are reported with zero totals.
+     */
+    public Map<Integer, ActionTotal> getActionTotals(int eventId) throws PersistenceException {
+        String sql = """
+                SELECT a.actionId, coalesce(t.totalStake, 0) AS totalStake, coalesce(t.bettors, 0) AS bettors
+                FROM actions a
+                LEFT JOIN action_totals t ON t.actionId = a.actionId
+                WHERE a.eventId = ?
+                """;
+        Map<Integer, ActionTotal> totals = new HashMap<>();
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement pstm = con.prepareStatement(sql)) {
+            pstm.setInt(1, eventId);
+            try (ResultSet rs = pstm.executeQuery()) {
+                while (rs.next()) {
+                    int actionId = rs.getInt("actionId");
+                    totals.put(actionId, new ActionTotal(actionId, rs.getDouble("totalStake"), rs.getInt("bettors")));
+                }
+            }
+        } catch (SQLException e) {
+            throw new PersistenceException("Error fetching action totals");
+        }
+        return totals;
+    }
+
+    /**
+     * @return the id of the event the action belongs to, or {@code -1} if there is no such action
+     */
+    public int updateCoefficient(int actionId,double coefficient) throws PersistenceException {
+        String sql = "UPDATE actions SET coefficient=? WHERE actionid=? RETURNING eventId";
+        try(Connection con = dataSource.getConnection()){
             con.setAutoCommit(false);
             try(PreparedStatement pstm = con.prepareStatement(sql)){
                 pstm.setDouble(1, coefficient);
                 pstm.setInt(2, actionId);
-                pstm.executeUpdate();
+                int eventId = -1;
+                try (ResultSet rs = pstm.executeQuery()) {
+                    if (rs.next()) {
+                        eventId = rs.getInt("eventId");
+                    }
+                }
                 con.commit();
+                return eventId;
             }
         } catch (SQLException e) {
             throw new PersistenceException("Coefficient is not updated "+e.getMessage());
         }
     }
 
-
+    /**
+     * Drops any cached copy of the event after its row was changed outside this repository, e.g. a
+     * participation raising its budget. The uncached repository has nothing to drop.
+     */
+    public void evict(int eventId) {
+    }
 }
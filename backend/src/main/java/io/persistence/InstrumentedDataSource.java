@@ -0,0 +1,107 @@
+package io.persistence;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Counts the SQL statements executed on connections of the wrapped pool ({@code jdbc.statements}) and
+ * reports every statement, and every row read, to the {@link StatementTracker} open on the executing
+ * thread. Every {@code execute*} call counts once; a batch is one statement. Result sets are only
+ * wrapped while a tracking is open.
+ */
+public class InstrumentedDataSource extends DelegatingDataSource implements Closeable {
+    private final Counter statements = Counter.builder("jdbc.statements").register(Metrics.globalRegistry);
+
+    public InstrumentedDataSource(DataSource target) {
+        super(target);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return instrument(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return instrument(super.getConnection(username, password));
+    }
+
+    /** Closes the wrapped pool, if it can be closed. */
+    @Override
+    public void close() {
+        if (getTargetDataSource() instanceof Closeable closeable) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private Connection instrument(Connection connection) {
+        return proxy(Connection.class, connection, (method, args, result) -> switch (method) {
+            case "prepareStatement" -> instrument(PreparedStatement.class, result, (String) args[0]);
+            case "prepareCall" -> instrument(CallableStatement.class, result, (String) args[0]);
+            case "createStatement" -> instrument(Statement.class, result, null);
+            default -> result;
+        });
+    }
+
+    /**
+     * @param preparedSql the statement text of a prepared statement, {@code null} for a plain statement
+     *                    that gets its text with every execution
+     */
+    private <T extends Statement> T instrument(Class<T> type, Object statement, String preparedSql) {
+        return proxy(type, statement, (method, args, result) -> {
+            if (method.startsWith("execute")) {
+                statements.increment();
+                boolean withText = args != null && args.length > 0 && args[0] instanceof String;
+                StatementTracker.executed(withText ? (String) args[0] : preparedSql);
+            }
+            if (result instanceof ResultSet rs && StatementTracker.isTracking()) {
+                return countRows(rs);
+            }
+            return result;
+        });
+    }
+
+    private static ResultSet countRows(ResultSet resultSet) {
+        return proxy(ResultSet.class, resultSet, (method, args, result) -> {
+            if (method.equals("next") && Boolean.TRUE.equals(result)) {
+                StatementTracker.rowRead();
+            }
+            return result;
+        });
+    }
+
+    private interface ResultWrapper {
+        Object wrap(String method, Object[] args, Object result);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Object target, ResultWrapper wrapper) {
+        InvocationHandler handler = (p, method, args) -> {
+            try {
+                return wrapper.wrap(method.getName(), args, method.invoke(target, args));
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        };
+        return (T) Proxy.newProxyInstance(InstrumentedDataSource.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+}
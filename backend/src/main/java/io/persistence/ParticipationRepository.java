@@ -1,57 +1,134 @@
 package io.persistence;
 
-import io.businessLogic.BusinessLogicException;
 import io.datarecords.Action;
+import io.datarecords.BetRejection;
+import io.datarecords.BetResult;
 import io.datarecords.Event;
 import io.datarecords.Participation;
 import io.datarecords.User;
+import org.springframework.stereotype.Repository;
 
+import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+@Repository
 public class ParticipationRepository {
+    private static final String PARTICIPATED_EVENTS = """
+            e.eventId IN (
+                SELECT a2.eventId FROM participations p2
+                JOIN actions a2 ON p2.actionId = a2.actionId
+            )
+            """;
+    private final DataSource dataSource;
+
+    public ParticipationRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
 
-    public void addParticipation(Participation participation) throws PersistenceException {
+    /**
+     * Places a bet in one transaction whose statements each carry their own guard, so concurrent bets
+     * cannot overdraw a balance or overfill an event:
+     * <ol>
+     *     <li>the event takes the stake if it is open, not finished and the stake is within its limit;
+     *     this takes the event's row lock, so a bet either commits before a settlement of the event
+     *     starts or sees it finished, and bets on one event are counted one at a time</li>
+     *     <li>the bettor pays the stake if the balance covers it</li>
+     *     <li>the bet is inserted if the bettor already plays on the event or its player limit is not
+     *     reached, and they have not bet on this action yet</li>
+     * </ol>
+     * Only when a guard refuses is the state read again, after the rollback, to name the reason.
+     *
+     * @return the event the bet was placed on, as found through the action, or why it was refused
+     */
+    public BetResult addParticipation(Participation participation) throws PersistenceException {
+        String updateEventBudget = """
+            UPDATE events e SET budget = e.budget + ?
+            FROM actions a
+            WHERE a.actionId = ? AND e.eventId = a.eventId
+              AND e.isOpen AND NOT e.isFinished AND e.stakeLimit >= ?
+            RETURNING e.eventId, e.playerLimit
+        """;
+        String updateUserBalance = "UPDATE users SET balance = balance - ? WHERE username = ? AND balance >= ?";
         String insertParticipation = """
             INSERT INTO participations (actionId, username, stake, potentialWin, hasWon)
-            VALUES (?, ?, ?, ?, ?)
+            SELECT ?, ?, ?, ?, ?
+            WHERE (
+                SELECT count(DISTINCT p.username) FROM participations p
+                JOIN actions a ON a.actionId = p.actionId
+                WHERE a.eventId = ? AND p.username <> ?
+            ) < ?
+            ON CONFLICT DO NOTHING
         """;
-        String updateEventBudget = """
-            UPDATE events SET budget = budget + ? 
-            WHERE eventId = (
-                SELECT eventId FROM actions WHERE actionId = ?
-            )
+        String updateActionTotals = """
+            INSERT INTO action_totals (actionId, totalStake, bettors)
+            VALUES (?, ?, 1)
+            ON CONFLICT (actionId) DO UPDATE
+            SET totalStake = action_totals.totalStake + excluded.totalStake,
+                bettors = action_totals.bettors + 1
         """;
-        String updateUserBalance = "UPDATE users SET balance = balance - ? WHERE username = ?";
+        int actionId = participation.action().actionId();
+        String username = participation.user().username();
+        double stake = participation.stake();
 
-        try (Connection con = DBConnect.getConnection()) {
+        try (Connection con = dataSource.getConnection()) {
             con.setAutoCommit(false);
-
             try (
-                    PreparedStatement pstm = con.prepareStatement(insertParticipation);
-                    PreparedStatement pstm2 = con.prepareStatement(updateEventBudget);
-                    PreparedStatement pstm3 = con.prepareStatement(updateUserBalance)
+                    PreparedStatement pstm = con.prepareStatement(updateEventBudget);
+                    PreparedStatement pstm2 = con.prepareStatement(updateUserBalance);
+                    PreparedStatement pstm3 = con.prepareStatement(insertParticipation);
+                    PreparedStatement pstm4 = con.prepareStatement(updateActionTotals)
             ) {
-                pstm.setInt(1, participation.action().actionId());
-                pstm.setString(2, participation.user().username());
-                pstm.setDouble(3, participation.stake());
-                pstm.setDouble(4, participation.potentialWin());
-                pstm.setBoolean(5, participation.hasWon());
-                pstm.executeUpdate();
-                pstm2.setDouble(1, participation.stake());
-                pstm2.setInt(2, participation.action().actionId());
-                pstm2.executeUpdate();
-                pstm3.setDouble(1, participation.stake());
-                pstm3.setString(2, participation.user().username());
-                pstm3.executeUpdate();
+                int eventId;
+                int playerLimit;
+                pstm.setDouble(1, stake);
+                pstm.setInt(2, actionId);
+                pstm.setDouble(3, stake);
+                try (ResultSet rs = pstm.executeQuery()) {
+                    if (!rs.next()) {
+                        con.rollback();
+                        return BetResult.rejected(eventRejection(con, actionId, stake));
+                    }
+                    eventId = rs.getInt("eventId");
+                    playerLimit = rs.getInt("playerLimit");
+                }
+
+                pstm2.setDouble(1, stake);
+                pstm2.setString(2, username);
+                pstm2.setDouble(3, stake);
+                if (pstm2.executeUpdate() == 0) {
+                    con.rollback();
+                    return BetResult.rejected(userRejection(con, username));
+                }
+
+                pstm3.setInt(1, actionId);
+                pstm3.setString(2, username);
+                pstm3.setDouble(3, stake);
+                pstm3.setDouble(4, participation.potentialWin());
+                pstm3.setBoolean(5, participation.hasWon());
+                pstm3.setInt(6, eventId);
+                pstm3.setString(7, username);
+                pstm3.setInt(8, playerLimit);
+                if (pstm3.executeUpdate() == 0) {
+                    con.rollback();
+                    return BetResult.rejected(participationRejection(con, actionId, username));
+                }
+
+                pstm4.setInt(1, actionId);
+                pstm4.setDouble(2, stake);
+                pstm4.executeUpdate();
 
                 con.commit();
+                return BetResult.placed(eventId);
             } catch (SQLException e) {
-                e.printStackTrace();
                 con.rollback();
+                throw e;
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -59,47 +136,183 @@ public class ParticipationRepository {
         }
     }
 
+    private static BetRejection eventRejection(Connection con, int actionId, double stake) throws SQLException {
+        String sql = """
+            SELECT e.isOpen, e.isFinished, e.stakeLimit FROM actions a
+            JOIN events e ON e.eventId = a.eventId
+            WHERE a.actionId = ?
+        """;
+        try (PreparedStatement pstm = con.prepareStatement(sql)) {
+            pstm.setInt(1, actionId);
+            try (ResultSet rs = pstm.executeQuery()) {
+                if (!rs.next()) {
+                    return BetRejection.EVENT_NOT_FOUND;
+                }
+                if (rs.getBoolean("isFinished")) {
+                    return BetRejection.EVENT_FINISHED;
+                }
+                if (!rs.getBoolean("isOpen")) {
+                    return BetRejection.EVENT_CLOSED;
+                }
+                // The event may have reopened since the guard refused; report it as it was then.
+                return stake > rs.getDouble("stakeLimit") ? BetRejection.STAKE_LIMIT_EXCEEDED : BetRejection.EVENT_CLOSED;
+            }
+        }
+    }
+
+    private static BetRejection userRejection(Connection con, String username) throws SQLException {
+        try (PreparedStatement pstm = con.prepareStatement("SELECT 1 FROM users WHERE username = ?")) {
+            pstm.setString(1, username);
+            try (ResultSet rs = pstm.executeQuery()) {
+                return rs.next() ? BetRejection.INSUFFICIENT_BALANCE : BetRejection.UNKNOWN_USER;
+            }
+        }
+    }
+
+    private static BetRejection participationRejection(Connection con, int actionId, String username) throws SQLException {
+        try (PreparedStatement pstm = con.prepareStatement("SELECT 1 FROM participations WHERE actionId = ? AND username = ?")) {
+            pstm.setInt(1, actionId);
+            pstm.setString(2, username);
+            try (ResultSet rs = pstm.executeQuery()) {
+                return rs.next() ? BetRejection.ALREADY_PLACED : BetRejection.PLAYER_LIMIT_REACHED;
+            }
+        }
+    }
+
     public ArrayList<Participation> getAll() throws PersistenceException {
+        return load(PARTICIPATED_EVENTS, null);
+    }
+
+    public ArrayList<Participation> getByEventId(int eventId) throws PersistenceException {
+        return load("e.eventId = ?", eventId);
+    }
+
+    /**
+     * One page of a user's bets, in a single query on {@code participations_username_actionid_idx}. Bets are
+     * ordered by their action, the most recently created action (highest actionId) first, which need not be
+     * the order the bets were placed in. The bets' events are shared between bets on the same event and come
+     * without their action lists or password.
+     *
+     * @param beforeActionId only bets on actions before this one, {@code null} for the first page
+     */
+    public ArrayList<Participation> findByUsername(User user, Integer beforeActionId, int limit) throws PersistenceException {
         String sql = """
-            SELECT p.*, a.action, a.coefficient, a.eventId 
+            SELECT e.event, e.eventId, e.budget, e.stakeLimit, e.playerLimit, e.isOpen, e.isFinished,
+                   e.isPublic, e.creator, NULL AS password, e.initialbudget, e.timeCreated, e.timeFinished,
+                   a.actionId, a.action, a.coefficient, p.stake, p.potentialWin, p.hasWon
             FROM participations p
-            JOIN actions a ON p.actionId = a.actionId
-        """;
+            JOIN actions a ON a.actionId = p.actionId
+            JOIN events e ON e.eventId = a.eventId
+            WHERE p.username = ? %s
+            ORDER BY p.actionId DESC
+            LIMIT ?
+        """.formatted(beforeActionId == null ? "" : "AND p.actionId < ?");
 
         ArrayList<Participation> participations = new ArrayList<>();
+        Map<Integer, Event> events = new HashMap<>();
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement pstm = con.prepareStatement(sql)) {
+            int index = 1;
+            pstm.setString(index++, user.username());
+            if (beforeActionId != null) {
+                pstm.setInt(index++, beforeActionId);
+            }
+            pstm.setInt(index, limit);
+            try (ResultSet rs = pstm.executeQuery()) {
+                while (rs.next()) {
+                    Event event = events.get(rs.getInt("eventId"));
+                    if (event == null) {
+                        event = EventRepository.mapEvent(rs, List.of());
+                        events.put(event.eventId(), event);
+                    }
+                    participations.add(new Participation(
+                            new Action(rs.getInt("actionId"), rs.getString("action"), rs.getDouble("coefficient"), event),
+                            user,
+                            rs.getDouble("stake"),
+                            rs.getDouble("potentialWin"),
+                            rs.getBoolean("hasWon")
+                    ));
+                }
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new PersistenceException("Failed to get participations of " + user.username());
+        }
+        return participations;
+    }
 
-        try (Connection con = DBConnect.getConnection()) {
-            con.setAutoCommit(false);
+    /**
+     * Builds participations for the events matched by {@code eventFilter} from a single result set.
+     * Every action of those events is joined (left-joined to its bets), so each {@link Event} gets its
+     * full action list without a second query. Users, events and actions are kept in identity maps:
+     * a user who bet ten times or an event with a thousand bets is materialized once and shared.
+     */
+    private ArrayList<Participation> load(String eventFilter, Integer eventId) throws PersistenceException {
+        String sql = """
+            SELECT e.*, a.actionId, a.action, a.coefficient,
+                   p.username, p.stake, p.potentialWin, p.hasWon,
+                   u.email AS userEmail, u.isVerified AS userIsVerified,
+                   u.balance AS userBalance, u.password AS userPassword
+            FROM events e
+            JOIN actions a ON a.eventId = e.eventId
+            LEFT JOIN participations p ON p.actionId = a.actionId
+            LEFT JOIN users u ON u.username = p.username
+            WHERE %s
+            ORDER BY e.eventId, a.actionId
+        """.formatted(eventFilter);
 
-            try (PreparedStatement pstm = con.prepareStatement(sql)) {
-                ResultSet rs = pstm.executeQuery();
+        ArrayList<Participation> participations = new ArrayList<>();
+        Map<Integer, Event> events = new HashMap<>();
+        Map<Integer, Action> actions = new HashMap<>();
+        Map<String, User> users = new HashMap<>();
 
-                UserRepository userRepository = Repository.getUserRepository();
-                EventRepository eventRepository = Repository.getEventRepository();
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement pstm = con.prepareStatement(sql)) {
+            if (eventId != null) {
+                pstm.setInt(1, eventId);
+            }
+            try (ResultSet rs = pstm.executeQuery()) {
                 while (rs.next()) {
+                    int rowEventId = rs.getInt("eventId");
+                    Event event = events.get(rowEventId);
+                    if (event == null) {
+                        event = EventRepository.mapEvent(rs, new ArrayList<>());
+                        events.put(rowEventId, event);
+                    }
+
                     int actionId = rs.getInt("actionId");
-                    String actionName = rs.getString("action");
-                    double coefficient = rs.getDouble("coefficient");
-                    int eventId = rs.getInt("eventId");
+                    Action action = actions.get(actionId);
+                    if (action == null) {
+                        String actionName = rs.getString("action");
+                        double coefficient = rs.getDouble("coefficient");
+                        event.actions().add(new Action(actionId, actionName, coefficient, null));
+                        action = new Action(actionId, actionName, coefficient, event);
+                        actions.put(actionId, action);
+                    }
 
                     String username = rs.getString("username");
-                    double stake = rs.getDouble("stake");
-                    double potentialWin = rs.getDouble("potentialWin");
-                    boolean hasWon = rs.getBoolean("hasWon");
-
-                    User user = userRepository.getAll().stream()
-                            .filter(u -> u.username().equals(username))
-                            .findFirst()
-                            .orElse(null);
-
-                    Action action = new Action(actionId, actionName, coefficient, eventRepository.getEventById(eventId));
-                    participations.add(new Participation(action, user, stake, potentialWin, hasWon));
+                    if (username == null) {
+                        continue;
+                    }
+                    User user = users.get(username);
+                    if (user == null) {
+                        user = new User(
+                                username,
+                                rs.getString("userEmail"),
+                                rs.getBoolean("userIsVerified"),
+                                rs.getDouble("userBalance"),
+                                rs.getString("userPassword")
+                        );
+                        users.put(username, user);
+                    }
+                    participations.add(new Participation(
+                            action,
+                            user,
+                            rs.getDouble("stake"),
+                            rs.getDouble("potentialWin"),
+                            rs.getBoolean("hasWon")
+                    ));
                 }
-
-                con.commit();
-            } catch (SQLException e) {
-                e.printStackTrace();
-                con.rollback();
             }
         } catch (SQLException e) {
             e.printStackTrace();
@@ -109,4 +322,3 @@ public class ParticipationRepository {
         return participations;
     }
 }
-
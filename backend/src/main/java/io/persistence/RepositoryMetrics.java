@@ -0,0 +1,51 @@
+package io.persistence;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.AbstractAdvisingBeanPostProcessor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.stereotype.Repository;
+import org.springframework.util.ClassUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every public method of the {@link Repository} beans as {@code repository}, tagged with the
+ * repository, the method and the exception it threw ({@code none} if it returned). The advice joins the
+ * proxy Spring already puts around repositories for exception translation. Switched off with
+ * {@code metrics.detailed=false}.
+ */
+@Component
+@ConditionalOnProperty(name = "metrics.detailed", havingValue = "true", matchIfMissing = true)
+public class RepositoryMetrics extends AbstractAdvisingBeanPostProcessor {
+
+    public RepositoryMetrics() {
+        MethodInterceptor timing = invocation -> {
+            if (invocation.getMethod().getDeclaringClass() == Object.class) {
+                return invocation.proceed();
+            }
+            long start = System.nanoTime();
+            String exception = "none";
+            try {
+                return invocation.proceed();
+            } catch (Throwable e) {
+                exception = e.getClass().getSimpleName();
+                throw e;
+            } finally {
+                Timer.builder("repository")
+                        .tag("repository", ClassUtils.getUserClass(invocation.getThis().getClass()).getSimpleName())
+                        .tag("method", invocation.getMethod().getName())
+                        .tag("exception", exception)
+                        .register(Metrics.globalRegistry)
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        };
+        this.advisor = new DefaultPointcutAdvisor(new AnnotationMatchingPointcut(Repository.class, true), timing);
+        setProxyTargetClass(true);
+        setBeforeExistingAdvisors(true);
+    }
+}
@@ -0,0 +1,211 @@
+package io.persistence;
+
+import io.datarecords.SettlementJob;
+import io.datarecords.SettlementSummary;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * The {@code settlement_jobs} queue. Any number of workers, on any number of nodes, claim jobs with
+ * {@code FOR UPDATE SKIP LOCKED}, so a job is handed to one worker and claiming never waits on another
+ * worker's row. A claim is a lease: a job still {@code running} after {@code lockedUntil} is claimed
+ * again. Every update after the claim is fenced on the attempt number, so a worker that lost its lease
+ * cannot overwrite the outcome of the attempt that replaced it.
+ */
+@Repository
+public class SettlementJobRepository {
+    private static final String ACTIVE = "status IN ('queued', 'running')";
+    private final DataSource dataSource;
+
+    public SettlementJobRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    /**
+     * Queues the settlement of an event, or returns the job already pending for it.
+     */
+    public SettlementJob enqueue(int eventId, String winnersAction) throws PersistenceException {
+        String insertSQL = """
+                INSERT INTO settlement_jobs (eventId, winnersAction) VALUES (?, ?)
+                ON CONFLICT (eventId) WHERE %s DO NOTHING
+                RETURNING *
+                """.formatted(ACTIVE);
+        String pendingSQL = "SELECT * FROM settlement_jobs WHERE eventId = ? AND " + ACTIVE;
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement insert = con.prepareStatement(insertSQL);
+             PreparedStatement pending = con.prepareStatement(pendingSQL)) {
+            insert.setInt(1, eventId);
+            insert.setString(2, winnersAction);
+            try (ResultSet rs = insert.executeQuery()) {
+                if (rs.next()) {
+                    return mapJob(rs);
+                }
+            }
+            pending.setInt(1, eventId);
+            try (ResultSet rs = pending.executeQuery()) {
+                if (rs.next()) {
+                    return mapJob(rs);
+                }
+            }
+            throw new PersistenceException("Failed to queue the settlement");
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new PersistenceException("Failed to queue the settlement");
+        }
+    }
+
+    public SettlementJob findById(int jobId) throws PersistenceException {
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement pstm = con.prepareStatement("SELECT * FROM settlement_jobs WHERE jobId = ?")) {
+            pstm.setInt(1, jobId);
+            try (ResultSet rs = pstm.executeQuery()) {
+                return rs.next() ? mapJob(rs) : null;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new PersistenceException("Failed to load settlement job");
+        }
+    }
+
+    /**
+     * Claims the oldest job that is due, or one whose lease ran out, for {@code lease}.
+     *
+     * @return the claimed job with its attempt counted, or {@code null} if there is nothing to do
+     */
+    public SettlementJob claimNext(Duration lease) throws PersistenceException {
+        String sql = """
+                UPDATE settlement_jobs
+                SET status = 'running', attempts = attempts + 1, startedAt = now(),
+                    lockedUntil = now() + ? * interval '1 millisecond'
+                WHERE jobId = (
+                    SELECT jobId FROM settlement_jobs
+                    WHERE (status = 'queued' AND runAfter <= now())
+                       OR (status = 'running' AND lockedUntil < now())
+                    ORDER BY jobId
+                    LIMIT 1
+                    FOR UPDATE SKIP LOCKED
+                )
+                RETURNING *
+                """;
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement pstm = con.prepareStatement(sql)) {
+            pstm.setLong(1, lease.toMillis());
+            try (ResultSet rs = pstm.executeQuery()) {
+                return rs.next() ? mapJob(rs) : null;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new PersistenceException("Failed to claim a settlement job");
+        }
+    }
+
+    /**
+     * Settles the event of a claimed job and records the outcome in the same transaction, so a job is
+     * never {@code done} without its settlement, nor settled twice. A settlement the event rejects
+     * (already finished, unknown action) marks the job {@code failed} right away.
+     *
+     * @return the job as it is now
+     * @throws PersistenceException if the attempt failed for a reason worth retrying
+     */
+    public SettlementJob run(SettlementJob job) throws PersistenceException {
+        String doneSQL = """
+                UPDATE settlement_jobs
+                SET status = 'done', finishedAt = now(), lockedUntil = NULL, lastError = NULL,
+                    winningBets = ?, losingBets = ?, payout = ?, lostStakes = ?, creatorRefund = ?, usersCredited = ?
+                WHERE jobId = ? AND status = 'running' AND attempts = ?
+                """;
+        try (Connection con = dataSource.getConnection()) {
+            con.setAutoCommit(false);
+            try (PreparedStatement done = con.prepareStatement(doneSQL)) {
+                SettlementSummary summary = EventRepository.settle(con, job.eventId(), job.winnersAction());
+                done.setInt(1, summary.winningBets());
+                done.setInt(2, summary.losingBets());
+                done.setDouble(3, summary.payout());
+                done.setDouble(4, summary.lostStakes());
+                done.setDouble(5, summary.creatorRefund());
+                done.setInt(6, summary.usersCredited());
+                done.setInt(7, job.jobId());
+                done.setInt(8, job.attempts());
+                if (done.executeUpdate() == 1) {
+                    con.commit();
+                } else {
+                    con.rollback();
+                }
+            } catch (PersistenceException rejected) {
+                con.rollback();
+                fail(job, rejected.getMessage());
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new PersistenceException("Failed to settle event " + job.eventId() + ": " + e.getMessage());
+        }
+        return findById(job.jobId());
+    }
+
+    /** Puts a claimed job back in the queue, due after {@code delay}. */
+    public void retryLater(SettlementJob job, String error, Duration delay) throws PersistenceException {
+        String sql = """
+                UPDATE settlement_jobs
+                SET status = 'queued', lastError = ?, lockedUntil = NULL, runAfter = now() + ? * interval '1 millisecond'
+                WHERE jobId = ? AND status = 'running' AND attempts = ?
+                """;
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement pstm = con.prepareStatement(sql)) {
+            pstm.setString(1, error);
+            pstm.setLong(2, delay.toMillis());
+            pstm.setInt(3, job.jobId());
+            pstm.setInt(4, job.attempts());
+            pstm.executeUpdate();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new PersistenceException("Failed to requeue settlement job");
+        }
+    }
+
+    /** Gives up on a claimed job. */
+    public void fail(SettlementJob job, String error) throws PersistenceException {
+        String sql = """
+                UPDATE settlement_jobs
+                SET status = 'failed', lastError = ?, lockedUntil = NULL, finishedAt = now()
+                WHERE jobId = ? AND status = 'running' AND attempts = ?
+                """;
+        try (Connection con = dataSource.getConnection();
+             PreparedStatement pstm = con.prepareStatement(sql)) {
+            pstm.setString(1, error);
+            pstm.setInt(2, job.jobId());
+            pstm.setInt(3, job.attempts());
+            pstm.executeUpdate();
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new PersistenceException("Failed to mark settlement job failed");
+        }
+    }
+
+    private static SettlementJob mapJob(ResultSet rs) throws SQLException {
+        int eventId = rs.getInt("eventId");
+        String winnersAction = rs.getString("winnersAction");
+        String status = rs.getString("status");
+        SettlementSummary summary = !"done".equals(status) ? null : new SettlementSummary(eventId, winnersAction,
+                rs.getInt("winningBets"), rs.getInt("losingBets"), rs.getDouble("payout"),
+                rs.getDouble("lostStakes"), rs.getDouble("creatorRefund"), rs.getInt("usersCredited"));
+        return new SettlementJob(rs.getInt("jobId"), eventId, winnersAction, status, rs.getInt("attempts"),
+                rs.getString("lastError"), toLocalDateTime(rs.getTimestamp("createdAt")),
+                toLocalDateTime(rs.getTimestamp("startedAt")), toLocalDateTime(rs.getTimestamp("finishedAt")),
+                summary);
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toLocalDateTime();
+    }
+}
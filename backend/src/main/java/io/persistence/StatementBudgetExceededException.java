@@ -0,0 +1,10 @@
+package io.persistence;
+
+/**
+ * Thrown by {@link StatementReport#checkBudget} when a piece of work ran more SQL than it is allowed to.
+ */
+public class StatementBudgetExceededException extends RuntimeException {
+    public StatementBudgetExceededException(String message) {
+        super(message);
+    }
+}
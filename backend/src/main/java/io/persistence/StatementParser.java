@@ -0,0 +1,98 @@
+package io.persistence;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import io.datarecords.MonoBankDeposit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses a Monobank statement, a JSON array of transactions, from chunks as they arrive, without keeping
+ * the body or a tree of it: only the fields of the transaction being read are held. Amounts arrive in
+ * kopecks. Fields other than id, time, description and amount are skipped, nested ones included.
+ *
+ * Not thread-safe; one parser reads one response.
+ */
+final class StatementParser {
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final JsonParser parser;
+    private final List<MonoBankDeposit> transactions = new ArrayList<>();
+    private int depth;
+    private String field;
+    private String id;
+    private long time;
+    private String description;
+    private double amount;
+
+    StatementParser() throws IOException {
+        parser = JSON.createNonBlockingByteBufferParser();
+    }
+
+    /** Parses what {@code chunk} completes; a token split across chunks is finished by the next one. */
+    void feed(ByteBuffer chunk) throws IOException {
+        ((ByteBufferFeeder) parser.getNonBlockingInputFeeder()).feedInput(chunk);
+        parse();
+    }
+
+    /** @return the transactions of the statement, in the order the bank sent them */
+    List<MonoBankDeposit> finish() throws IOException {
+        parser.getNonBlockingInputFeeder().endOfInput();
+        parse();
+        if (depth != 0) {
+            throw new IOException("Statement ended inside a transaction");
+        }
+        parser.close();
+        return transactions;
+    }
+
+    private void parse() throws IOException {
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            switch (token) {
+                case START_ARRAY, START_OBJECT -> {
+                    if (depth == 0 && token != JsonToken.START_ARRAY) {
+                        throw new IOException("Statement is not an array");
+                    }
+                    if (++depth == 2) {
+                        id = null;
+                        time = 0;
+                        description = "N/A";
+                        amount = 0;
+                    }
+                }
+                case END_ARRAY, END_OBJECT -> {
+                    if (depth-- == 2) {
+                        if (id == null) {
+                            throw new IOException("Transaction without an id");
+                        }
+                        transactions.add(new MonoBankDeposit(id, amount / 100, description, Instant.ofEpochSecond(time)));
+                    }
+                }
+                case FIELD_NAME -> field = parser.currentName();
+                default -> {
+                    if (depth == 2) {
+                        value();
+                    }
+                }
+            }
+        }
+    }
+
+    private void value() throws IOException {
+        switch (field) {
+            case "id" -> id = parser.getText();
+            case "time" -> time = parser.getLongValue();
+            case "description" -> description = parser.getText();
+            case "amount" -> amount = parser.getDoubleValue();
+            default -> {
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package io.persistence;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The SQL a {@link StatementTracker.Tracking} saw: statements executed, rows read, and executions per
+ * statement shape.
+ */
+public record StatementReport(int statements, long rows, Map<String, Integer> shapes) {
+
+    /**
+     * @return the shapes executed more than {@code threshold} times, most executed first
+     */
+    public Map<String, Integer> repeated(int threshold) {
+        Map<String, Integer> repeated = new LinkedHashMap<>();
+        shapes.entrySet().stream()
+                .filter(e -> e.getValue() > threshold)
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                .forEach(e -> repeated.put(e.getKey(), e.getValue()));
+        return repeated;
+    }
+
+    /**
+     * @throws StatementBudgetExceededException if more than {@code maxStatements} statements ran, or a
+     * shape ran more than {@code maxRepeats} times
+     */
+    public void checkBudget(int maxStatements, int maxRepeats) {
+        Map<String, Integer> repeated = repeated(maxRepeats);
+        if (statements > maxStatements || !repeated.isEmpty()) {
+            throw new StatementBudgetExceededException("Executed " + statements + " statements (budget "
+                    + maxStatements + "), shapes over " + maxRepeats + " executions: " + repeated);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package io.persistence;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Follows the SQL a piece of work executes on its thread through an {@link InstrumentedDataSource}:
+ * how many statements, how many rows were read, and how often each statement shape ran. A shape is the
+ * statement text with literals replaced by {@code ?}, so the same query issued for different ids counts
+ * as one shape; a shape running over and over is the mark of an N+1 query.
+ *
+ * <pre>
+ * try (StatementTracker.Tracking tracking = StatementTracker.start()) {
+ *     repository.getAll();
+ *     tracking.report().checkBudget(1, 1);
+ * }
+ * </pre>
+ * Trackings nest; statements count toward every tracking open on the thread. Nothing is recorded while
+ * no tracking is open, and closing on another thread than the one that started it does nothing.
+ */
+public final class StatementTracker {
+    private static final ThreadLocal<Tracking> CURRENT = new ThreadLocal<>();
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private StatementTracker() {
+    }
+
+    /** Opens a tracking on the calling thread; close it on the same thread. */
+    public static Tracking start() {
+        Tracking tracking = new Tracking(CURRENT.get());
+        CURRENT.set(tracking);
+        return tracking;
+    }
+
+    static boolean isTracking() {
+        return CURRENT.get() != null;
+    }
+
+    static void executed(String sql) {
+        Tracking tracking = CURRENT.get();
+        if (tracking == null) {
+            return;
+        }
+        String shape = shape(sql);
+        for (; tracking != null; tracking = tracking.parent) {
+            tracking.statements++;
+            tracking.shapes.merge(shape, 1, Integer::sum);
+        }
+    }
+
+    static void rowRead() {
+        for (Tracking tracking = CURRENT.get(); tracking != null; tracking = tracking.parent) {
+            tracking.rows++;
+        }
+    }
+
+    static String shape(String sql) {
+        if (sql == null) {
+            return "<batch>";
+        }
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+
+    public static final class Tracking implements AutoCloseable {
+        private final Tracking parent;
+        private final Map<String, Integer> shapes = new HashMap<>();
+        private int statements;
+        private long rows;
+        private boolean closed;
+
+        private Tracking(Tracking parent) {
+            this.parent = parent;
+        }
+
+        /** What was recorded so far. */
+        public StatementReport report() {
+            return new StatementReport(statements, rows, Map.copyOf(shapes));
+        }
+
+        @Override
+        public void close() {
+            if (!closed && CURRENT.get() == this) {
+                closed = true;
+                CURRENT.set(parent);
+            }
+        }
+    }
+}
@@ -1,37 +1,35 @@
 package io.persistence;
 
 import io.datarecords.Event;
-import io.datarecords.MonoBankDeposit;
 import io.datarecords.User;
 import io.datarecords.Verification;
 import org.mindrot.jbcrypt.BCrypt;
 import org.springframework.stereotype.Repository;
 
+import javax.sql.DataSource;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.List;
 
+@Repository
 public class UserRepository {
+    private final DataSource dataSource;
 
-
-
+    public UserRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
 
     public ArrayList<User> getAll() throws PersistenceException {
         ArrayList<User> users = new ArrayList<>();
 
         String sql = "SELECT * FROM users";
 
-        try (Connection conn = DBConnect.getConnection();
+        try (Connection conn = dataSource.getConnection();
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
-                String username = rs.getString("username");
-                String password = rs.getString("password");
-                String email = rs.getString("email");
-                double balance = rs.getDouble("balance");
-                boolean isVerified = rs.getBoolean("isVerified");
-
-                users.add(new User(username, email,isVerified,balance,password));
+                users.add(mapUser(rs));
             }
 
         } catch (SQLException e) {
@@ -41,9 +39,36 @@ public class UserRepository {
 
         return users;
     }
+    /**
+     * Case-insensitive lookup served by the {@code lower(username)} index. Should two usernames differ
+     * only in case, the exact match wins.
+     */
+    public User findByUsername(String username) throws PersistenceException {
+        String sql = "SELECT * FROM users WHERE lower(username) = lower(?) ORDER BY username = ? DESC LIMIT 1";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement pstm = conn.prepareStatement(sql)) {
+            pstm.setString(1, username);
+            pstm.setString(2, username);
+            try (ResultSet rs = pstm.executeQuery()) {
+                return rs.next() ? mapUser(rs) : null;
+            }
+        } catch (SQLException e) {
+            e.printStackTrace();
+            throw new PersistenceException("Failed to find user");
+        }
+    }
+    static User mapUser(ResultSet rs) throws SQLException {
+        return new User(
+                rs.getString("username"),
+                rs.getString("email"),
+                rs.getBoolean("isVerified"),
+                rs.getDouble("balance"),
+                rs.getString("password")
+        );
+    }
     public void addUser(User user) throws PersistenceException {
         String sql = "INSERT INTO users(username,email,password) values(?,?,?)";
-        try(Connection con = DBConnect.getConnection()){
+        try(Connection con = dataSource.getConnection()){
             con.setAutoCommit(false);
             try(PreparedStatement pstm = con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);){
                 pstm.setString(1,user.username());
@@ -64,7 +89,7 @@ public class UserRepository {
     }
     public void verificationRequest(Verification verification) throws PersistenceException {
         String sql = "insert into verification(username,firstname,lastname,bsn,iban,address,postalcode,phonenumber) values(?,?,?,?,?,?,?,?)";
-        try(Connection connection = DBConnect.getConnection()){
+        try(Connection connection = dataSource.getConnection()){
             connection.setAutoCommit(false);
             try(PreparedStatement pstm = connection.prepareStatement(sql)) {
                 pstm.setString(1,verification.user().username());
@@ -82,54 +107,34 @@ public class UserRepository {
             throw new PersistenceException("Request failed");
         }
     }
-    public void monoDeposit(MonoBankDeposit mbd) throws PersistenceException {
-        String[] name = mbd.description().split(" ");
-
-        String sql = "update users\n" +
-                "set balance = balance + ?\n" +
-                "where username = (\n" +
-                "    select v.username from verification v\n" +
-                "    where v.firstname = ? and v.lastname = ?\n" +
-                "    and v.username = users.username\n" +
-                ")";
-        try(Connection con = DBConnect.getConnection()){
-            con.setAutoCommit(false);
-            try(PreparedStatement pstm = con.prepareStatement(sql)) {
-                pstm.setDouble(1,mbd.amount());
-                pstm.setString(2,name[2]);
-                pstm.setString(3,name[1]);
-                pstm.executeUpdate();
-                con.commit();
-            } catch (SQLException e) {
-                con.rollback();
-            }
-        }catch (SQLException e){
-            throw new PersistenceException("Deposit failed");
-        }
-    }
-    public void monoWithdraw(MonoBankDeposit mbd) throws PersistenceException {
-        String[] name = mbd.description().split(" ");
-
-        String sql = "update users\n" +
-                "set balance = balance + ?\n" +
-                "where username = (\n" +
-                "    select v.username from verification v\n" +
-                "    where v.firstname = ? and v.lastname = ?\n" +
-                "    and v.username = users.username\n" +
-                ")";
-        try(Connection con = DBConnect.getConnection()){
-            con.setAutoCommit(false);
-            try(PreparedStatement pstm = con.prepareStatement(sql)) {
-                pstm.setDouble(1,mbd.amount());
-                pstm.setString(2,name[2]);
-                pstm.setString(3,name[1]);
-                pstm.executeUpdate();
-                con.commit();
+    /**
+     * Inserts several verification requests with one batched statement in one transaction; either all
+     * of them are stored or none.
+     */
+    public void verificationRequests(List<Verification> verifications) throws PersistenceException {
+        String sql = "insert into verification(username,firstname,lastname,bsn,iban,address,postalcode,phonenumber) values(?,?,?,?,?,?,?,?)";
+        try(Connection connection = dataSource.getConnection()){
+            connection.setAutoCommit(false);
+            try(PreparedStatement pstm = connection.prepareStatement(sql)) {
+                for (Verification verification : verifications) {
+                    pstm.setString(1,verification.user().username());
+                    pstm.setString(2, verification.firstName());
+                    pstm.setString(3, verification.lastName());
+                    pstm.setString(4,verification.bsn());
+                    pstm.setString(5, verification.iban());
+                    pstm.setString(6, verification.address());
+                    pstm.setString(7, verification.postalCode());
+                    pstm.setString(8,verification.phoneNumber());
+                    pstm.addBatch();
+                }
+                pstm.executeBatch();
+                connection.commit();
             } catch (SQLException e) {
-                con.rollback();
+                connection.rollback();
+                throw e;
             }
-        }catch (SQLException e){
-            throw new PersistenceException("Withdraw failed");
+        } catch (SQLException e) {
+            throw new PersistenceException("Request failed");
         }
     }
 
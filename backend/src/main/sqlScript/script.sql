@@ -55,6 +55,82 @@ CREATE TABLE verification(
                              verified boolean default false
 );
 
+-- Per-action stake aggregates, kept up to date in the same transaction that inserts a participation.
+-- The suggested coefficients read these instead of summing every participation of the event.
+create table if not exists action_totals(
+                              actionId int primary key references actions(actionId),
+                              totalStake float not null default 0,
+                              bettors int not null default 0
+);
+-- Backfill for databases that already contain participations.
+insert into action_totals(actionId, totalStake, bettors)
+select actionId, sum(stake), count(*) from participations group by actionId
+on conflict (actionId) do update set totalStake = excluded.totalStake, bettors = excluded.bettors;
+
+-- Queued settlements, claimed by the backend nodes with FOR UPDATE SKIP LOCKED. A running job whose lease
+-- (lockedUntil) ran out belonged to a node that died and is claimed again.
+create table if not exists settlement_jobs(
+                              jobId serial primary key,
+                              eventId int not null references events(eventId),
+                              winnersAction text not null,
+                              status text not null default 'queued' check (status in ('queued', 'running', 'done', 'failed')),
+                              attempts int not null default 0,
+                              lastError text,
+                              runAfter timestamp not null default now(),
+                              lockedUntil timestamp,
+                              createdAt timestamp not null default now(),
+                              startedAt timestamp,
+                              finishedAt timestamp,
+                              winningBets int,
+                              losingBets int,
+                              payout float,
+                              lostStakes float,
+                              creatorRefund float,
+                              usersCredited int
+);
+-- At most one pending settlement per event; enqueueing again returns the pending job.
+create unique index if not exists settlement_jobs_active_event_idx on settlement_jobs (eventId) where status in ('queued', 'running');
+create index if not exists settlement_jobs_queued_idx on settlement_jobs (runAfter, jobId) where status = 'queued';
+
+-- Bank statement lines already applied, keyed by the bank's transaction id, so overlapping statement windows
+-- and concurrent nodes apply each transaction once. username is null when no verified user matched the
+-- payment description.
+create table if not exists bank_transactions(
+                              transactionId text primary key,
+                              amount float not null,
+                              description text,
+                              time timestamp not null,
+                              username text references users(username),
+                              appliedAt timestamp not null default now()
+);
+-- Progress of the statement ingester per bank account, see BankTransactionRepository. highWater: statements
+-- are complete up to here. windowEnd/pageEnd: set while a window with more transactions than one statement
+-- returns is read page by page, newest first. nextPollAt: the bank's rate limit, shared by all nodes.
+create table if not exists bank_ingest(
+                              account text primary key,
+                              highWater timestamp not null default now() - interval '10 minutes',
+                              windowEnd timestamp,
+                              pageEnd timestamp,
+                              nextPollAt timestamp not null default now()
+);
+insert into bank_ingest(account) values ('0') on conflict do nothing;
+
+-- Case-insensitive username lookups (login, registration uniqueness, session refresh).
+create index if not exists users_lower_username_idx on users (lower(username));
+-- Loading the actions of one event; unique(action,eventId) leads with action and cannot serve this.
+create index if not exists actions_eventid_idx on actions (eventId);
+-- Bets of one user, newest first and paginated (profile), and the foreign key check when a user row is
+-- deleted; the primary key (actionId, username) leads with actionId and cannot serve either.
+create index if not exists participations_username_actionid_idx on participations (username, actionId);
+drop index if exists participations_username_idx;
+-- Keyset pagination of the event listing (GET /api/events/page), newest or oldest first.
+create index if not exists events_created_idx on events (timeCreated desc, eventId desc);
+create index if not exists events_creator_created_idx on events (creator, timeCreated desc, eventId desc);
+-- Matching bank statement lines to users by the name in the payment description, a batch at a time.
+create index if not exists verification_name_idx on verification (firstname, lastname);
+-- The default home page feed: events that can still take bets.
+create index if not exists events_open_created_idx on events (timeCreated desc, eventId desc) where isOpen and not isFinished;
+
 create or replace function dateverifiedf()
 returns trigger as $$
 begin
@@ -68,14 +144,7 @@ $$ language plpgsql;
 
 create or replace trigger dateverifiedt
 after update on verification
-                    for each row WHEN (pg_trigger_depth() < 1) execute function dff()
-
-
-
-
-
-drop table verification
-
+                    for each row WHEN (pg_trigger_depth() < 1) execute function dateverifiedf();
 
 create or replace function tff()
 returns trigger as $$
@@ -89,7 +158,7 @@ $$ language plpgsql;
 
 create or replace trigger tft
 after update on events
-                    for each row WHEN (pg_trigger_depth() < 1) execute function tff()
+                    for each row WHEN (pg_trigger_depth() < 1) execute function tff();
 
 create or replace function ibf()
 returns trigger as $$
@@ -101,9 +170,6 @@ $$ language plpgsql;
 
 create or replace trigger ibt
 before insert on events
-for each row execute function ibf()
-
-create or replace view eventsview as (select * from events)
-
-
+for each row execute function ibf();
 
+create or replace view eventsview as (select * from events);
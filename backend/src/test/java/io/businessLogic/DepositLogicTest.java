@@ -0,0 +1,169 @@
+package io.businessLogic;
+
+import com.sun.net.httpserver.HttpServer;
+import io.datarecords.BankCredit;
+import io.datarecords.BankTransactionResult;
+import io.datarecords.IngestState;
+import io.datarecords.MonoBankDeposit;
+import io.persistence.BankTransactionRepository;
+import io.persistence.DepositRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs {@link DepositLogic} against a stub of the bank's statement API on a local port and an in-memory
+ * ingest state.
+ */
+public class DepositLogicTest {
+    private static final Instant HIGH_WATER = Instant.now().minus(Duration.ofHours(1)).truncatedTo(ChronoUnit.SECONDS);
+
+    private HttpServer bank;
+    private DepositRepository depositRepository;
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+    private final List<String> tokens = new CopyOnWriteArrayList<>();
+    private volatile String statement = "[]";
+
+    private IngestState state = new IngestState(HIGH_WATER, null, null);
+    private boolean due = true;
+    private final List<MonoBankDeposit> applied = new ArrayList<>();
+
+    private final BankTransactionRepository bankTransactions = new BankTransactionRepository(null) {
+        @Override
+        public IngestState claimPoll(String account, Duration interval) {
+            return due ? state : null;
+        }
+
+        @Override
+        public void saveProgress(String account, IngestState progress) {
+            state = progress;
+        }
+
+        @Override
+        public List<BankTransactionResult> apply(List<MonoBankDeposit> transactions) {
+            applied.addAll(transactions);
+            return transactions.stream()
+                    .map(tx -> new BankTransactionResult(tx, BankTransactionResult.Outcome.CREDITED, "alice")).toList();
+        }
+    };
+
+    @BeforeEach
+    public void startBank() throws IOException {
+        bank = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        bank.createContext("/personal/statement/0/", exchange -> {
+            requests.add(exchange.getRequestURI().getPath());
+            tokens.add(exchange.getRequestHeaders().getFirst("X-Token"));
+            byte[] body = statement.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        bank.start();
+    }
+
+    @AfterEach
+    public void stopBank() {
+        if (depositRepository != null) {
+            depositRepository.close();
+        }
+        bank.stop(0);
+    }
+
+    private DepositLogic depositLogic() {
+        depositRepository = new DepositRepository("http://localhost:" + bank.getAddress().getPort(), "test-token");
+        return new DepositLogic(depositRepository, bankTransactions, Duration.ofSeconds(61), Duration.ofMinutes(5));
+    }
+
+    private static String transactions(int count, long newest) {
+        return transactions(count, newest, 1);
+    }
+
+    private static String transactions(int count, long newest, int spacing) {
+        List<String> json = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            json.add("""
+                    {"id":"tx%d","time":%d,"description":"Від: Doe John","amount":%d}""".formatted(i, newest - (long) i * spacing, i % 2 == 0 ? 1250 : -300));
+        }
+        return "[" + String.join(",", json) + "]";
+    }
+
+    @Test
+    public void ingest_readsFromTheHighWaterMarkAndMovesIt() throws BusinessLogicException {
+        statement = transactions(2, HIGH_WATER.getEpochSecond() + 30);
+
+        List<BankCredit> credits = depositLogic().ingest();
+
+        assertThat(tokens).containsExactly("test-token");
+        String[] window = requests.get(0).substring("/personal/statement/0/".length()).split("/");
+        assertThat(Long.parseLong(window[0])).isEqualTo(HIGH_WATER.minus(Duration.ofMinutes(5)).getEpochSecond());
+        assertThat(applied).extracting(MonoBankDeposit::id).containsExactly("tx0", "tx1");
+        assertThat(applied).extracting(MonoBankDeposit::amount).containsExactly(12.5, -3.0);
+        assertThat(applied.get(0).description()).isEqualTo("Від: Doe John");
+        assertThat(credits).hasSize(2);
+        assertThat(state.highWater().getEpochSecond()).isEqualTo(Long.parseLong(window[1]));
+        assertThat(state.pageEnd()).isNull();
+    }
+
+    @Test
+    public void ingest_readsAFullWindowPageByPageBeforeMovingTheHighWaterMark() throws BusinessLogicException {
+        long newest = HIGH_WATER.getEpochSecond() + 1_000;
+        statement = transactions(DepositRepository.STATEMENT_LIMIT, newest);
+        DepositLogic depositLogic = depositLogic();
+
+        depositLogic.ingest();
+
+        Instant oldest = Instant.ofEpochSecond(newest - DepositRepository.STATEMENT_LIMIT + 1);
+        assertThat(state.highWater()).isEqualTo(HIGH_WATER);
+        assertThat(state.pageEnd()).isEqualTo(oldest);
+        Instant windowEnd = state.windowEnd();
+
+        statement = transactions(3, oldest.getEpochSecond());
+        depositLogic.ingest();
+
+        assertThat(requests.get(1)).endsWith("/" + oldest.getEpochSecond());
+        assertThat(state).isEqualTo(new IngestState(windowEnd, null, null));
+    }
+
+    @Test
+    public void ingest_stepsPastAFullPageBookedInTheSecondItEndsAt() throws BusinessLogicException {
+        Instant windowEnd = HIGH_WATER.plus(Duration.ofMinutes(30));
+        Instant pageEnd = HIGH_WATER.plus(Duration.ofMinutes(20));
+        state = new IngestState(HIGH_WATER, windowEnd, pageEnd);
+        statement = transactions(DepositRepository.STATEMENT_LIMIT, pageEnd.getEpochSecond(), 0);
+        DepositLogic depositLogic = depositLogic();
+
+        depositLogic.ingest();
+
+        assertThat(applied).hasSize(DepositRepository.STATEMENT_LIMIT);
+        assertThat(state).isEqualTo(new IngestState(HIGH_WATER, windowEnd, pageEnd.minusSeconds(1)));
+
+        statement = transactions(3, pageEnd.getEpochSecond() - 1);
+        depositLogic.ingest();
+
+        assertThat(requests.get(1)).endsWith("/" + (pageEnd.getEpochSecond() - 1));
+        assertThat(state).isEqualTo(new IngestState(windowEnd, null, null));
+    }
+
+    @Test
+    public void ingest_sendsNothingWhenAnotherNodeHasTheTurn() throws BusinessLogicException {
+        due = false;
+
+        assertThat(depositLogic().ingest()).isEmpty();
+        assertThat(requests).isEmpty();
+        assertThat(state).isEqualTo(new IngestState(HIGH_WATER, null, null));
+    }
+}
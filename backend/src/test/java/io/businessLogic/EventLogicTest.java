@@ -0,0 +1,122 @@
+package io.businessLogic;
+
+import io.datarecords.Action;
+import io.datarecords.ActionTotal;
+import io.datarecords.Event;
+import io.datarecords.EventCursor;
+import io.datarecords.EventFilter;
+import io.datarecords.EventPage;
+import io.persistence.EventRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class EventLogicTest {
+    private final Action home = new Action(1, "Home wins", 2.0, null);
+    private final Action away = new Action(2, "Away wins", 2.0, null);
+    private final Action draw = new Action(3, "Draw", 2.0, null);
+
+    @Test
+    public void suggestCoefficients_priceActionsByTheirShareOfTheStakes() {
+        Map<Integer, ActionTotal> totals = Map.of(
+                1, new ActionTotal(1, 75.0, 3),
+                2, new ActionTotal(2, 25.0, 1));
+
+        List<Action> suggested = EventLogic.suggestCoefficients(List.of(home, away, draw), totals);
+
+        assertThat(suggested).extracting("coefficient").containsExactly(100.0 / 75.0, 4.0, 5.0);
+        assertThat(suggested).extracting("actionId").containsExactly(1, 2, 3);
+    }
+
+    @Test
+    public void suggestCoefficients_withoutStakesSuggestsTheMaximum() {
+        List<Action> suggested = EventLogic.suggestCoefficients(List.of(home, away), Map.of());
+
+        assertThat(suggested).extracting("coefficient").containsExactly(5.0, 5.0);
+    }
+
+    @Test
+    public void suggestCoefficients_clampsAFavouriteToTheMinimum() {
+        Map<Integer, ActionTotal> totals = Map.of(
+                1, new ActionTotal(1, 999.0, 40),
+                2, new ActionTotal(2, 1.0, 1));
+
+        List<Action> suggested = EventLogic.suggestCoefficients(List.of(home, away), totals);
+
+        assertThat(suggested.get(0).coefficient()).isEqualTo(1.01);
+    }
+
+    /**
+     * Seven events, three of them created at the same moment, served the way {@code findPage} seeks:
+     * ordered by (timeCreated, eventId) and continued strictly past the cursor.
+     */
+    private final List<Event> events = IntStream.rangeClosed(1, 7)
+            .mapToObj(id -> new Event("Event " + id, id, 100, 10, 10, true, false, true, "alice", null, 100,
+                    LocalDateTime.of(2025, 1, 1, 12, id >= 3 && id <= 5 ? 3 : id), null, List.of()))
+            .toList();
+    private final List<Integer> limits = new ArrayList<>();
+    private final EventLogic eventLogic = new EventLogic(new EventRepository(null) {
+        @Override
+        public List<Event> findPage(EventFilter filter, EventCursor after, int limit, boolean withActions) {
+            limits.add(limit);
+            Comparator<Event> order = Comparator.comparing(Event::timeCreated).thenComparing(Event::eventId);
+            Comparator<Event> direction = filter.newestFirst() ? order.reversed() : order;
+            Event cursor = after == null ? null
+                    : new Event(null, after.eventId(), 0, 0, 0, false, false, false, null, null, 0, after.timeCreated(), null, null);
+            return events.stream()
+                    .filter(e -> cursor == null || direction.compare(e, cursor) > 0)
+                    .sorted(direction)
+                    .limit(limit)
+                    .toList();
+        }
+    }, null);
+
+    private List<Integer> readAllPages(boolean newestFirst, int size) throws BusinessLogicException {
+        EventFilter filter = new EventFilter(null, null, null, null, null, newestFirst);
+        List<Integer> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            EventPage page = eventLogic.getEventPage(filter, cursor, size, false);
+            assertThat(page.events()).hasSizeLessThanOrEqualTo(size);
+            page.events().forEach(e -> ids.add(e.eventId()));
+            cursor = page.nextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+    @Test
+    public void getEventPage_continuesAcrossEventsCreatedAtTheSameTime() throws BusinessLogicException {
+        assertThat(readAllPages(true, 2)).containsExactly(7, 6, 5, 4, 3, 2, 1);
+        assertThat(readAllPages(false, 2)).containsExactly(1, 2, 3, 4, 5, 6, 7);
+        assertThat(readAllPages(true, 7)).containsExactly(7, 6, 5, 4, 3, 2, 1);
+        // One extra event is read to tell whether another page follows.
+        assertThat(limits).containsOnly(3, 8);
+    }
+
+    @Test
+    public void getEventPage_lastPageHasNoCursor() throws BusinessLogicException {
+        EventFilter filter = new EventFilter(null, null, null, null, null, true);
+
+        assertThat(eventLogic.getEventPage(filter, null, 6, false).nextCursor()).isNotNull();
+        assertThat(eventLogic.getEventPage(filter, null, 7, false).nextCursor()).isNull();
+        assertThat(eventLogic.getEventPage(filter, null, 100, false).events()).hasSize(7);
+    }
+
+    @Test
+    public void getEventPage_rejectsSizesOutsideOneToHundredAndMalformedCursors() {
+        EventFilter filter = new EventFilter(null, null, null, null, null, true);
+
+        assertThrows(BusinessLogicException.class, () -> eventLogic.getEventPage(filter, null, 0, false));
+        assertThrows(BusinessLogicException.class, () -> eventLogic.getEventPage(filter, null, 101, false));
+        assertThrows(BusinessLogicException.class, () -> eventLogic.getEventPage(filter, "not a cursor", 20, false));
+        assertThat(limits).isEmpty();
+    }
+}
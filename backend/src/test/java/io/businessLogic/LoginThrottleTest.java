@@ -0,0 +1,42 @@
+package io.businessLogic;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LoginThrottleTest {
+    private final LoginThrottle throttle = new LoginThrottle(3, 5, Duration.ofMinutes(15));
+
+    @Test
+    public void usernameIsThrottledAfterItsFailureLimit() {
+        for (int i = 0; i < 3; i++) {
+            throttle.failed("Alice", "10.0.0." + i);
+        }
+
+        assertThrows(LoginThrottledException.class, () -> throttle.check("alice", "10.0.0.9"));
+        assertDoesNotThrow(() -> throttle.check("bob", "10.0.0.9"));
+    }
+
+    @Test
+    public void addressIsThrottledAcrossUsernames() {
+        for (int i = 0; i < 5; i++) {
+            throttle.failed("user" + i, "10.0.0.1");
+        }
+
+        assertThrows(LoginThrottledException.class, () -> throttle.check("someoneElse", "10.0.0.1"));
+        assertDoesNotThrow(() -> throttle.check("someoneElse", "10.0.0.2"));
+    }
+
+    @Test
+    public void successfulLoginClearsTheUsernameCount() {
+        throttle.failed("alice", "10.0.0.1");
+        throttle.failed("alice", "10.0.0.1");
+        throttle.succeeded("alice");
+        throttle.failed("alice", "10.0.0.1");
+
+        assertDoesNotThrow(() -> throttle.check("alice", "10.0.0.2"));
+    }
+}
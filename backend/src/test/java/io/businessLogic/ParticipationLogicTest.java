@@ -0,0 +1,69 @@
+package io.businessLogic;
+
+import io.datarecords.Action;
+import io.datarecords.BetRejection;
+import io.datarecords.BetResult;
+import io.datarecords.Event;
+import io.datarecords.Participation;
+import io.datarecords.User;
+import io.persistence.EventRepository;
+import io.persistence.ParticipationRepository;
+import io.persistence.PersistenceException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+public class ParticipationLogicTest {
+    private final ParticipationRepository participationRepository = mock(ParticipationRepository.class);
+    private final EventRepository eventRepository = mock(EventRepository.class);
+    private final ParticipationLogic participationLogic = new ParticipationLogic(participationRepository, eventRepository);
+
+    private Participation bet(double stake) {
+        Event event = new Event("Match", 7, 1000, 100, 10, true, false, true, "bob", null, 1000, null, null, List.of());
+        return new Participation(new Action(3, "Home wins", 2.0, event), new User("alice", null, false, 0, null), stake, stake * 2, false);
+    }
+
+    @Test
+    public void addParticipation_reportsWhyTheRepositoryRefusedTheBet() throws PersistenceException {
+        Participation bet = bet(10);
+        when(participationRepository.addParticipation(bet)).thenReturn(BetResult.rejected(BetRejection.INSUFFICIENT_BALANCE));
+
+        assertThatThrownBy(() -> participationLogic.addParticipation(bet))
+                .isInstanceOf(BetRejectedException.class)
+                .hasMessage(BetRejection.INSUFFICIENT_BALANCE.message());
+        verify(eventRepository, never()).evict(7);
+    }
+
+    @Test
+    public void addParticipation_placesWithoutReadingTheEventFirst() throws Exception {
+        Participation bet = bet(10);
+        when(participationRepository.addParticipation(bet)).thenReturn(BetResult.placed(7));
+
+        assertThat(participationLogic.addParticipation(bet)).isEqualTo(7);
+
+        verify(eventRepository).evict(7);
+        verify(eventRepository, never()).findEventById(7);
+    }
+
+    @Test
+    public void addParticipation_evictsTheEventTheDatabaseFoundNotTheOneTheRequestNamed() throws Exception {
+        Participation bet = new Participation(new Action(3, "Home wins", 2.0, null), new User("alice", null, false, 0, null), 10, 20, false);
+        when(participationRepository.addParticipation(bet)).thenReturn(BetResult.placed(9));
+
+        assertThat(participationLogic.addParticipation(bet)).isEqualTo(9);
+
+        verify(eventRepository).evict(9);
+    }
+
+    @Test
+    public void addParticipation_rejectsANonPositiveStakeWithoutTouchingTheDatabase() throws PersistenceException {
+        assertThatThrownBy(() -> participationLogic.addParticipation(bet(0)))
+                .isInstanceOf(BusinessLogicException.class)
+                .isNotInstanceOf(BetRejectedException.class);
+        verifyZeroInteractions(participationRepository);
+    }
+}
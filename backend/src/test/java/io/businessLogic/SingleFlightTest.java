@@ -0,0 +1,95 @@
+package io.businessLogic;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SingleFlightTest {
+    private final AtomicInteger computations = new AtomicInteger();
+
+    @Test
+    public void concurrentCallersShareOneComputation() throws Exception {
+        // Within the freshness window a caller arriving just after the computation finished is served
+        // its result too, so the count below does not depend on when the callers get there.
+        SingleFlight<Integer, String> flight = new SingleFlight<>("test", Duration.ofMinutes(1));
+        CountDownLatch computing = new CountDownLatch(1);
+        CountDownLatch entered = new CountDownLatch(3);
+        SingleFlight.Computation<String> slow = () -> {
+            computations.incrementAndGet();
+            computing.countDown();
+            try {
+                entered.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "event 7";
+        };
+
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        List<Future<String>> reads = new ArrayList<>();
+        reads.add(callers.submit(() -> flight.get(7, slow)));
+        computing.await(5, TimeUnit.SECONDS);
+        for (int i = 0; i < 3; i++) {
+            reads.add(callers.submit(() -> {
+                entered.countDown();
+                return flight.get(7, slow);
+            }));
+        }
+
+        for (Future<String> read : reads) {
+            assertThat(read.get(5, TimeUnit.SECONDS)).isEqualTo("event 7");
+        }
+        callers.shutdown();
+        assertThat(computations.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void aFinishedComputationIsNotShared() throws BusinessLogicException {
+        SingleFlight<Integer, String> flight = new SingleFlight<>("test", Duration.ZERO);
+
+        flight.get(7, () -> "event 7");
+
+        assertThat(flight.get(7, () -> "event 7 again")).isEqualTo("event 7 again");
+    }
+
+    @Test
+    public void errorsAreRethrownAndNotKept() throws BusinessLogicException {
+        SingleFlight<Integer, String> flight = new SingleFlight<>("test", Duration.ZERO);
+
+        assertThrows(StackOverflowError.class, () -> flight.get(7, () -> {
+            throw new StackOverflowError();
+        }));
+        assertThat(flight.get(7, () -> "event 7")).isEqualTo("event 7");
+    }
+
+    @Test
+    public void failuresAreNotKept() throws BusinessLogicException {
+        SingleFlight<Integer, String> flight = new SingleFlight<>("test", Duration.ofMinutes(1));
+
+        assertThrows(BusinessLogicException.class, () -> flight.get(7, () -> {
+            throw new BusinessLogicException("Event not found.");
+        }));
+        assertThat(flight.get(7, () -> "event 7")).isEqualTo("event 7");
+    }
+
+    @Test
+    public void resultsAreReusedWithinTheFreshnessWindow() throws BusinessLogicException {
+        SingleFlight<Integer, String> flight = new SingleFlight<>("test", Duration.ofMinutes(1));
+
+        flight.get(7, () -> "first " + computations.incrementAndGet());
+
+        assertThat(flight.get(7, () -> "second " + computations.incrementAndGet())).isEqualTo("first 1");
+        assertThat(flight.get(8, () -> "other " + computations.incrementAndGet())).isEqualTo("other 2");
+    }
+}
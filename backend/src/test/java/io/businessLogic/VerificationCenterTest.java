@@ -0,0 +1,45 @@
+package io.businessLogic;
+
+import io.datarecords.User;
+import io.datarecords.Verification;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class VerificationCenterTest {
+    private final User user = new User("alice", "alice@example.com", false, 0.0, null);
+
+    @Test
+    public void validDataHasNoErrors() {
+        Verification v = new Verification(user, "Anne-Marie", "de Vries", "111222333", "NL91ABNA0417164300",
+                "Kerkstraat 1, Amsterdam", "1011 AB", "0612345678");
+
+        assertThat(VerificationCenter.validate(v)).isEmpty();
+    }
+
+    @Test
+    public void everyInvalidFieldIsReportedInOnePass() {
+        Verification v = new Verification(user, "A", null, "111222334", "NL92ABNA0417164300",
+                "Kerk", "1011 ab", "612345678");
+
+        Map<String, String> errors = VerificationCenter.validate(v);
+
+        assertThat(errors).containsOnlyKeys("firstName", "lastName", "bsn", "iban", "address", "postalCode", "phoneNumber");
+        assertThat(errors.keySet()).first().isEqualTo("firstName");
+    }
+
+    @Test
+    public void checkersAgreeWithTheRules() {
+        assertThat(VerificationCenter.isValidBSN("12345672")).isTrue();
+        assertThat(VerificationCenter.isValidBSN("12345678a")).isFalse();
+        assertThat(VerificationCenter.isValidIban("NL02ABNA0123456789")).isTrue();
+        assertThat(VerificationCenter.isValidIban("NL91abna0417164300")).isFalse();
+        assertThat(VerificationCenter.isValidPostalCode("1011AB")).isTrue();
+        assertThat(VerificationCenter.isValidPostalCode("1011-AB")).isFalse();
+        assertThat(VerificationCenter.isValidPhoneNumber("+31612345678")).isTrue();
+        assertThat(VerificationCenter.isValidPhoneNumber("0012345678")).isFalse();
+        assertThat(VerificationCenter.isValidAddress("Line 1\nLine 2")).isFalse();
+    }
+}
@@ -0,0 +1,154 @@
+package io.businessLogic;
+
+import io.datarecords.User;
+import io.datarecords.Verification;
+import io.datarecords.VerificationStatus;
+import io.persistence.PersistenceException;
+import io.persistence.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class VerificationPipelineTest {
+    private final FakeUserRepository repository = new FakeUserRepository();
+    private VerificationPipeline pipeline;
+
+    @AfterEach
+    public void tearDown() {
+        if (pipeline != null) {
+            pipeline.shutdown();
+        }
+    }
+
+    // Flushes only when the test asks for it.
+    private VerificationPipeline pipeline(int maxPending) {
+        pipeline = new VerificationPipeline(repository, 2, maxPending, 10, Duration.ofHours(1), Duration.ofHours(1), false);
+        return pipeline;
+    }
+
+    @Test
+    public void statusMovesFromEncryptingThroughSavingToDone() throws Exception {
+        VerificationPipeline pipeline = pipeline(4);
+
+        VerificationStatus submitted = pipeline.submit(verification("alice"));
+
+        assertThat(submitted.status()).isEqualTo("encrypting");
+        assertThat(awaitStatus(submitted.id(), "saving").username()).isEqualTo("alice");
+        assertThat(repository.saved).isEmpty();
+
+        pipeline.flush();
+
+        assertThat(pipeline.getStatus(submitted.id())).isEqualTo(new VerificationStatus(submitted.id(), "alice", "done", null));
+        assertThat(repository.saved).singleElement().satisfies(v -> {
+            assertThat(v.user().username()).isEqualTo("alice");
+            assertThat(v.bsn()).isNotEqualTo("111222333");
+        });
+        assertThat(repository.batches).isEqualTo(1);
+    }
+
+    @Test
+    public void aFailedBatchIsRetriedRowByRow() throws Exception {
+        VerificationPipeline pipeline = pipeline(4);
+        repository.failBatches = true;
+        repository.failing = Set.of("bob");
+        VerificationStatus alice = pipeline.submit(verification("alice"));
+        VerificationStatus bob = pipeline.submit(verification("bob"));
+        VerificationStatus carol = pipeline.submit(verification("carol"));
+        awaitStatus(alice.id(), "saving");
+        awaitStatus(bob.id(), "saving");
+        awaitStatus(carol.id(), "saving");
+
+        pipeline.flush();
+
+        assertThat(pipeline.getStatus(alice.id()).status()).isEqualTo("done");
+        assertThat(pipeline.getStatus(bob.id())).isEqualTo(
+                new VerificationStatus(bob.id(), "bob", "failed", "Verification could not be saved"));
+        assertThat(pipeline.getStatus(carol.id()).status()).isEqualTo("done");
+        assertThat(repository.saved).extracting(v -> v.user().username()).containsExactlyInAnyOrder("alice", "carol");
+    }
+
+    @Test
+    public void refusesBeyondMaxPendingUntilASubmissionFinishes() throws Exception {
+        VerificationPipeline pipeline = pipeline(1);
+        VerificationStatus first = pipeline.submit(verification("alice"));
+
+        assertThrows(VerificationOverloadedException.class, () -> pipeline.submit(verification("bob")));
+
+        awaitStatus(first.id(), "saving");
+        pipeline.flush();
+        assertThat(pipeline.submit(verification("bob")).status()).isEqualTo("encrypting");
+    }
+
+    @Test
+    public void refusesWhenTheHashPoolRejectsWork() throws Exception {
+        VerificationPipeline pipeline = pipeline(4);
+        pipeline.shutdown();
+
+        assertThrows(VerificationOverloadedException.class, () -> pipeline.submit(verification("alice")));
+    }
+
+    @Test
+    public void shutdownSavesAcceptedSubmissions() throws Exception {
+        VerificationPipeline pipeline = pipeline(4);
+        VerificationStatus alice = pipeline.submit(verification("alice"));
+        VerificationStatus bob = pipeline.submit(verification("bob"));
+
+        pipeline.shutdown();
+
+        assertThat(pipeline.getStatus(alice.id()).status()).isEqualTo("done");
+        assertThat(pipeline.getStatus(bob.id()).status()).isEqualTo("done");
+        assertThat(repository.saved).hasSize(2);
+    }
+
+    private VerificationStatus awaitStatus(String id, String status) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        VerificationStatus current = pipeline.getStatus(id);
+        while (!current.status().equals(status) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            current = pipeline.getStatus(id);
+        }
+        assertThat(current.status()).isEqualTo(status);
+        return current;
+    }
+
+    private static Verification verification(String username) {
+        return new Verification(new User(username, username + "@example.com", false, 0.0, null), "Anne-Marie",
+                "de Vries", "111222333", "NL91ABNA0417164300", "Kerkstraat 1, Amsterdam", "1011 AB", "0612345678");
+    }
+
+    private static class FakeUserRepository extends UserRepository {
+        private final List<Verification> saved = new ArrayList<>();
+        private int batches;
+        private boolean failBatches;
+        private Set<String> failing = Set.of();
+
+        FakeUserRepository() {
+            super(null);
+        }
+
+        @Override
+        public synchronized void verificationRequest(Verification verification) throws PersistenceException {
+            if (failing.contains(verification.user().username())) {
+                throw new PersistenceException("Request failed");
+            }
+            saved.add(verification);
+        }
+
+        @Override
+        public synchronized void verificationRequests(List<Verification> verifications) throws PersistenceException {
+            if (failBatches) {
+                throw new PersistenceException("Request failed");
+            }
+            batches++;
+            saved.addAll(verifications);
+        }
+    }
+}
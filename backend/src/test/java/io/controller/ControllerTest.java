@@ -4,6 +4,8 @@ import io.businessLogic.*;
 import io.controller.RegistrationRequest;
 import io.datarecords.Action;
 import io.datarecords.Event;
+import io.datarecords.Participation;
+import io.datarecords.SettlementJob;
 import io.datarecords.User;
 import org.assertj.core.api.SoftAssertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -67,8 +69,14 @@ public class ControllerTest {
     @Mock
     private ParticipationLogic participationLogic;
 
+    @Mock
+    private SettlementLogic settlementLogic;
+
+    @Mock
+    private LiveUpdates liveUpdates;
+
     @InjectMocks
-    private Controller controller = new Controller(logic);
+    private Controller controller = new Controller(logic, liveUpdates);
 
 
     @BeforeEach
@@ -77,6 +85,7 @@ public class ControllerTest {
         when(logic.getUserLogic()).thenReturn(userLogic);
         when(logic.getEventLogic()).thenReturn(eventLogic);
         when(logic.getParticipationLogic()).thenReturn(participationLogic);
+        when(logic.getSettlementLogic()).thenReturn(settlementLogic);
     }
 
 
@@ -152,15 +161,14 @@ public class ControllerTest {
         verify(eventLogic).getAllEvents();
     }
     @Test
-    public void getEvent_validId_returnsMatchingEvent() {
-
-        List<Event> events = List.of(dummyEvent);
+    public void getEvent_validId_returnsMatchingEvent() throws BusinessLogicException {
 
-        when(eventLogic.getAllEvents()).thenReturn(events);
+        when(eventLogic.getEvent(1)).thenReturn(dummyEvent);
 
         Event result = controller.getEvent(1);
 
-        assertThat(result).isEqualTo(events.get(0));
+        assertThat(result).isEqualTo(dummyEvent);
+        verify(eventLogic, never()).getAllEvents();
     }
     @Test
     public void createEvent_validEvent_returnsOkResponse() throws BusinessLogicException {
@@ -173,4 +181,47 @@ public class ControllerTest {
         assertThat(response.getBody()).isEqualTo(dummyEvent);
         verify(eventLogic).createEvent(dummyEvent);
     }
+    @Test
+    public void setFinished_queuesSettlementAndReturnsAccepted() throws BusinessLogicException {
+        SettlementJob job = new SettlementJob(7, 1, "Team A Wins", "queued", 0, null,
+                LocalDateTime.now(), null, null, null);
+        when(settlementLogic.requestSettlement(1, "Team A Wins")).thenReturn(job);
+
+        ResponseEntity<SettlementJob> response = controller.setFinished(1, "Team A Wins");
+
+        assertThat(response.getStatusCode().value()).isEqualTo(202);
+        assertThat(response.getHeaders().getLocation()).hasToString("/api/settlements/7");
+        assertThat(response.getBody()).isEqualTo(job);
+    }
+    @Test
+    public void addParticipation_publishesTheBudgetOfTheEventTheBetWasPlacedOn() throws BusinessLogicException {
+        Participation bet = new Participation(dummyAction, dummyUser, 10, 25, false);
+        Event placedOn = new Event("Autumn Cup", 9, 800.0, 100.0, 10, true, false, true, "johnDoe",
+                null, 800.0, LocalDateTime.now(), null, List.of());
+        when(participationLogic.addParticipation(bet)).thenReturn(9);
+        when(liveUpdates.hasEventSubscribers(9)).thenReturn(true);
+        when(eventLogic.getEvent(9)).thenReturn(placedOn);
+
+        controller.addParticipation(bet);
+
+        verify(liveUpdates).publishBudget(new LiveUpdates.BudgetChanged(9, 800.0));
+        verify(liveUpdates, never()).hasEventSubscribers(1);
+    }
+    @Test
+    public void eventStats_readsTheAnalysisOnly() throws BusinessLogicException {
+        when(eventLogic.getEvent(1)).thenReturn(dummyEvent);
+        when(participationLogic.getEventAnalysis(1)).thenReturn(List.of());
+
+        Object[] result = controller.eventStats(1);
+
+        assertThat(result).containsExactly(List.of());
+        verify(eventLogic, never()).suggestedCoefficients(1);
+    }
+    @Test
+    public void eventStats_unknownEvent_throws() throws BusinessLogicException {
+        when(eventLogic.getEvent(1)).thenReturn(null);
+
+        assertThrows(BusinessLogicException.class, () -> controller.eventStats(1));
+        verify(participationLogic, never()).getEventAnalysis(1);
+    }
 }
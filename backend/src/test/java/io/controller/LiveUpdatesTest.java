@@ -0,0 +1,154 @@
+package io.controller;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LiveUpdatesTest {
+    private final LiveUpdates liveUpdates = new LiveUpdates(false) {
+        @Override
+        SseEmitter newEmitter() {
+            return new RecordingEmitter();
+        }
+    };
+
+    @AfterEach
+    public void tearDown() {
+        liveUpdates.shutdown();
+    }
+
+    @Test
+    public void publishedDeltasReachEverySubscriberOfTheirTopic() throws Exception {
+        RecordingEmitter first = (RecordingEmitter) liveUpdates.subscribeToEvent(7);
+        RecordingEmitter second = (RecordingEmitter) liveUpdates.subscribeToEvent(7);
+        RecordingEmitter otherEvent = (RecordingEmitter) liveUpdates.subscribeToEvent(8);
+        RecordingEmitter user = (RecordingEmitter) liveUpdates.subscribeToUser("John");
+
+        liveUpdates.publishCoefficient(new LiveUpdates.CoefficientChanged(7, 71, 1.5));
+        liveUpdates.publishBudget(new LiveUpdates.BudgetChanged(7, 300));
+        liveUpdates.publishBalance(new LiveUpdates.BalanceChanged("john", 20));
+
+        first.await(2);
+        second.await(2);
+        user.await(1);
+        assertThat(first.sent).hasSize(2);
+        assertThat(first.sent.get(0)).contains("event:coefficient");
+        assertThat(first.sent.get(1)).contains("event:budget");
+        assertThat(second.sent).isEqualTo(first.sent);
+        assertThat(user.sent).singleElement().asString().contains("event:balance");
+        assertThat(otherEvent.sent).isEmpty();
+    }
+
+    @Test
+    public void subscribersLeaveOnCompletionTimeoutOrError() {
+        RecordingEmitter timedOut = (RecordingEmitter) liveUpdates.subscribeToEvent(7);
+        RecordingEmitter failed = (RecordingEmitter) liveUpdates.subscribeToUser("john");
+        RecordingEmitter completed = (RecordingEmitter) liveUpdates.subscribeToEvent(8);
+        assertThat(liveUpdates.hasEventSubscribers(7)).isTrue();
+        assertThat(liveUpdates.hasUserSubscribers("JOHN")).isTrue();
+
+        timedOut.timeoutCallback.run();
+        failed.errorCallback.accept(new IOException("Broken pipe"));
+        completed.completionCallback.run();
+
+        assertThat(liveUpdates.hasEventSubscribers(7)).isFalse();
+        assertThat(liveUpdates.hasUserSubscribers("john")).isFalse();
+        assertThat(liveUpdates.hasEventSubscribers(8)).isFalse();
+        assertThat(liveUpdates.hasUserSubscribers()).isFalse();
+    }
+
+    @Test
+    public void aFailedSendDropsTheSubscriber() throws Exception {
+        RecordingEmitter broken = (RecordingEmitter) liveUpdates.subscribeToEvent(7);
+        broken.failSends = true;
+
+        liveUpdates.publishBudget(new LiveUpdates.BudgetChanged(7, 300));
+
+        assertThat(broken.failure.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(liveUpdates.hasEventSubscribers(7)).isFalse();
+    }
+
+    @Test
+    public void aSlowSubscriberIsDroppedWithoutHoldingUpTheOthers() throws Exception {
+        RecordingEmitter slow = (RecordingEmitter) liveUpdates.subscribeToEvent(7);
+        RecordingEmitter fast = (RecordingEmitter) liveUpdates.subscribeToEvent(7);
+        slow.block = new CountDownLatch(1);
+
+        int published = 0;
+        while (published <= LiveUpdates.QUEUE_CAPACITY) {
+            for (int i = 0; i < 8; i++, published++) {
+                liveUpdates.publishCoefficient(new LiveUpdates.CoefficientChanged(7, 71, published));
+            }
+            fast.await(published);
+        }
+
+        assertThat(slow.failure.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(fast.sent).hasSize(published);
+        assertThat(liveUpdates.hasEventSubscribers(7)).isTrue();
+        slow.block.countDown();
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<String> sent = new CopyOnWriteArrayList<>();
+        private final CountDownLatch failure = new CountDownLatch(1);
+        private volatile boolean failSends;
+        private volatile CountDownLatch block;
+        private Runnable completionCallback;
+        private Runnable timeoutCallback;
+        private Consumer<Throwable> errorCallback;
+
+        @Override
+        public void send(SseEventBuilder event) throws IOException {
+            if (failSends) {
+                throw new IOException("Broken pipe");
+            }
+            CountDownLatch blocked = block;
+            if (blocked != null) {
+                try {
+                    blocked.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            StringBuilder text = new StringBuilder();
+            event.build().forEach(part -> text.append(part.getData()));
+            sent.add(text.toString());
+        }
+
+        @Override
+        public void completeWithError(Throwable ex) {
+            failure.countDown();
+        }
+
+        @Override
+        public void onCompletion(Runnable callback) {
+            completionCallback = callback;
+        }
+
+        @Override
+        public void onTimeout(Runnable callback) {
+            timeoutCallback = callback;
+        }
+
+        @Override
+        public void onError(Consumer<Throwable> callback) {
+            errorCallback = callback;
+        }
+
+        private void await(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (sent.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+        }
+    }
+}
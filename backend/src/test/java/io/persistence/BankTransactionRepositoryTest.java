@@ -0,0 +1,149 @@
+package io.persistence;
+
+import io.datarecords.BankTransactionResult;
+import io.datarecords.BankTransactionResult.Outcome;
+import io.datarecords.MonoBankDeposit;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * {@link BankTransactionRepository#apply} is one statement whose matching and exactly-once crediting live
+ * in SQL, so it runs against an embedded PostgreSQL loaded with {@code script.sql}.
+ */
+public class BankTransactionRepositoryTest {
+    private static EmbeddedPostgres postgres;
+    private static DataSource dataSource;
+    private BankTransactionRepository repository;
+
+    @BeforeAll
+    public static void startDatabase() throws Exception {
+        postgres = EmbeddedPostgres.builder().start();
+        dataSource = postgres.getPostgresDatabase();
+        execute(Files.readString(Path.of("src/main/sqlScript/script.sql")));
+        execute("""
+                INSERT INTO users (username, email) VALUES
+                    ('alice', 'alice@example.com'), ('bob', 'bob@example.com'), ('carol', 'carol@example.com'),
+                    ('dave', 'dave@example.com'), ('dave2', 'dave2@example.com');
+                INSERT INTO verification (username, firstname, lastname, bsn, iban, address, postalcode, phonenumber, verified)
+                VALUES ('alice', 'Alice', 'Smith', '', '', '', '', '', true),
+                       ('bob', 'Bob', 'Jones', '', '', '', '', '', true),
+                       ('carol', 'Carol', 'White', '', '', '', '', '', false),
+                       ('dave', 'Dave', 'Brown', '', '', '', '', '', true),
+                       ('dave2', 'Dave', 'Brown', '', '', '', '', '', true);
+                """);
+    }
+
+    @AfterAll
+    public static void stopDatabase() throws Exception {
+        if (postgres != null) {
+            postgres.close();
+        }
+    }
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        execute("TRUNCATE bank_transactions; UPDATE users SET balance = 0;");
+        repository = new BankTransactionRepository(dataSource);
+    }
+
+    @Test
+    public void overlappingBatchesCreditEachTransactionOnce() throws Exception {
+        List<BankTransactionResult> first = repository.apply(List.of(
+                tx("tx1", 10, "Smith Alice"), tx("tx2", 5, "Jones Bob"), tx("tx1", 10, "Smith Alice")));
+        List<BankTransactionResult> second = repository.apply(List.of(
+                tx("tx2", 5, "Jones Bob"), tx("tx3", 3, "Smith Alice"), tx("tx4", -2, "Jones Bob")));
+
+        assertThat(first).extracting(BankTransactionResult::outcome).containsExactly(Outcome.CREDITED, Outcome.CREDITED);
+        assertThat(first).extracting(BankTransactionResult::username).containsExactly("alice", "bob");
+        assertThat(second).extracting(BankTransactionResult::outcome)
+                .containsExactly(Outcome.DUPLICATE, Outcome.CREDITED, Outcome.CREDITED);
+        assertThat(balance("alice")).isEqualTo(13);
+        assertThat(balance("bob")).isEqualTo(3);
+        assertThat(count("SELECT count(*) FROM bank_transactions")).isEqualTo(4);
+    }
+
+    @Test
+    public void onlyOneVerifiedNameMatchIsCredited() throws Exception {
+        List<BankTransactionResult> results = repository.apply(List.of(
+                tx("tx1", 10, "White Carol"), tx("tx2", 10, "Brown Dave"), tx("tx3", 10, "Nobody Known")));
+
+        assertThat(results).extracting(BankTransactionResult::outcome).containsOnly(Outcome.UNMATCHED);
+        assertThat(count("SELECT count(*) FROM bank_transactions WHERE username IS NULL")).isEqualTo(3);
+        assertThat(count("SELECT count(*) FROM users WHERE balance <> 0")).isZero();
+    }
+
+    @Test
+    public void concurrentBatchesCreditEachTransactionOnce() throws Exception {
+        List<MonoBankDeposit> batch = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            batch.add(tx("tx" + i, 1, i % 2 == 0 ? "Smith Alice" : "Jones Bob"));
+        }
+        int nodes = 4;
+        ExecutorService pool = Executors.newFixedThreadPool(nodes);
+        CountDownLatch start = new CountDownLatch(1);
+        Callable<List<BankTransactionResult>> apply = () -> {
+            start.await(5, TimeUnit.SECONDS);
+            return repository.apply(batch);
+        };
+        List<Future<List<BankTransactionResult>>> applied = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            applied.add(pool.submit(apply));
+        }
+        start.countDown();
+
+        int credited = 0;
+        for (Future<List<BankTransactionResult>> results : applied) {
+            credited += (int) results.get(30, TimeUnit.SECONDS).stream()
+                    .filter(r -> r.outcome() == Outcome.CREDITED).count();
+        }
+        pool.shutdown();
+
+        assertThat(credited).isEqualTo(50);
+        assertThat(balance("alice")).isEqualTo(25);
+        assertThat(balance("bob")).isEqualTo(25);
+    }
+
+    private static MonoBankDeposit tx(String id, double amount, String name) {
+        return new MonoBankDeposit(id, amount, "Від: " + name, Instant.parse("2025-01-01T12:00:00Z"));
+    }
+
+    private static double balance(String username) throws SQLException {
+        return count("SELECT balance FROM users WHERE username = '" + username + "'");
+    }
+
+    private static long count(String sql) throws SQLException {
+        try (Connection con = dataSource.getConnection(); Statement stm = con.createStatement();
+             ResultSet rs = stm.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    private static void execute(String sql) throws SQLException {
+        try (Connection con = dataSource.getConnection(); Statement stm = con.createStatement()) {
+            stm.execute(sql);
+        }
+    }
+}
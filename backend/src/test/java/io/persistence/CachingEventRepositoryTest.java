@@ -0,0 +1,132 @@
+package io.persistence;
+
+import io.datarecords.Event;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CachingEventRepositoryTest {
+    private FakeJdbc jdbc;
+    private CachingEventRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+        jdbc = new FakeJdbc(List.of(FakeJdbc.row(
+                "event", "Final", "eventId", 7, "budget", 1000.0, "stakeLimit", 100.0,
+                "playerLimit", 10, "isOpen", true, "isFinished", false, "isPublic", true,
+                "creator", "creator", "password", "", "initialbudget", 1000.0,
+                "timeCreated", Timestamp.valueOf("2025-01-01 12:00:00"), "timeFinished", null,
+                "actionId", 70, "action", "Home wins", "coefficient", 2.0)));
+        repository = new CachingEventRepository(jdbc.dataSource(), 100, Duration.ofMinutes(1));
+    }
+
+    @Test
+    public void repeatedReadsAreServedFromTheCache() throws PersistenceException {
+        Event first = repository.findEventById(7);
+        Event second = repository.findEventById(7);
+        repository.getAll();
+        repository.getAll();
+
+        assertThat(second).isSameAs(first);
+        assertThat(jdbc.executedQueries()).isEqualTo(2);
+    }
+
+    @Test
+    public void writesEvictTheTouchedEvent() throws PersistenceException {
+        repository.findEventById(7);
+        repository.getAll();
+
+        repository.setClosed(7);
+        repository.findEventById(7);
+        repository.getAll();
+
+        // 2 initial loads + the update + 2 reloads
+        assertThat(jdbc.executedQueries()).isEqualTo(5);
+    }
+
+    @Test
+    public void coefficientUpdatesEvictTheOwningEvent() throws PersistenceException {
+        repository.findEventById(7);
+
+        assertThat(repository.updateCoefficient(70, 3.0)).isEqualTo(7);
+        repository.findEventById(7);
+
+        assertThat(jdbc.executedQueries()).isEqualTo(3);
+    }
+
+    @Test
+    public void concurrentMissesShareOneLoad() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        DataSource slow = (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+                new Class<?>[]{DataSource.class}, (proxy, method, args) -> {
+                    loading.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                    return method.invoke(jdbc.dataSource(), args);
+                });
+        repository = new CachingEventRepository(slow, 100, Duration.ofMinutes(1));
+
+        // A reader arriving after the load finished is served from the cache, so the count below does not
+        // depend on when the readers get there.
+        CountDownLatch entered = new CountDownLatch(3);
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        List<Future<Event>> reads = new ArrayList<>();
+        reads.add(readers.submit(() -> repository.findEventById(7)));
+        loading.await(5, TimeUnit.SECONDS);
+        for (int i = 0; i < 3; i++) {
+            reads.add(readers.submit(() -> {
+                entered.countDown();
+                return repository.findEventById(7);
+            }));
+        }
+        entered.await(5, TimeUnit.SECONDS);
+        release.countDown();
+
+        for (Future<Event> read : reads) {
+            assertThat(read.get(5, TimeUnit.SECONDS)).isSameAs(reads.get(0).get());
+        }
+        readers.shutdown();
+        assertThat(jdbc.executedQueries()).isEqualTo(1);
+    }
+
+    @Test
+    public void aLoadFailingWithAnErrorIsNotLeftInFlight() throws Exception {
+        AtomicBoolean fail = new AtomicBoolean(true);
+        DataSource failingOnce = (DataSource) Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+                new Class<?>[]{DataSource.class}, (proxy, method, args) -> {
+                    if (fail.getAndSet(false)) {
+                        throw new StackOverflowError();
+                    }
+                    return method.invoke(jdbc.dataSource(), args);
+                });
+        repository = new CachingEventRepository(failingOnce, 100, Duration.ofMinutes(1));
+
+        assertThrows(StackOverflowError.class, () -> repository.findEventById(7));
+
+        ExecutorService reader = Executors.newSingleThreadExecutor();
+        assertThat(reader.submit(() -> repository.findEventById(7)).get(5, TimeUnit.SECONDS).eventId()).isEqualTo(7);
+        reader.shutdown();
+    }
+
+    @Test
+    public void cachedEventsCannotBeModified() throws PersistenceException {
+        Event event = repository.findEventById(7);
+
+        assertThrows(UnsupportedOperationException.class, () -> event.actions().clear());
+    }
+}
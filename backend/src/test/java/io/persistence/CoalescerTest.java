@@ -0,0 +1,79 @@
+package io.persistence;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CoalescerTest {
+    private final Coalescer<Integer, String> coalescer = new Coalescer<>();
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    public void callersShareTheCallInFlight() {
+        CompletableFuture<String> request = new CompletableFuture<>();
+        Coalescer.Flight<String> first = coalescer.start(7, () -> {
+            calls.incrementAndGet();
+            return request;
+        });
+
+        Coalescer.Flight<String> second = coalescer.run(7, () -> "event 7 again " + calls.incrementAndGet());
+        Coalescer.Flight<String> third = coalescer.start(7, () -> CompletableFuture.completedFuture("other"));
+        Coalescer.Flight<String> otherKey = coalescer.run(8, () -> "event 8");
+
+        assertThat(first.started()).isTrue();
+        assertThat(second.started()).isFalse();
+        assertThat(third.started()).isFalse();
+        assertThat(second.outcome()).isSameAs(first.outcome()).isNotDone();
+        assertThat(otherKey.outcome()).isCompletedWithValue("event 8");
+
+        request.complete("event 7");
+
+        assertThat(third.outcome()).isCompletedWithValue("event 7");
+        assertThat(calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void aFinishedCallIsNotShared() {
+        coalescer.run(7, () -> "first");
+
+        Coalescer.Flight<String> again = coalescer.run(7, () -> "second");
+
+        assertThat(again.started()).isTrue();
+        assertThat(again.outcome()).isCompletedWithValue("second");
+    }
+
+    @Test
+    public void whateverACallThrowsCompletesIt() {
+        Coalescer.Flight<String> failed = coalescer.run(7, () -> {
+            throw new PersistenceException("Event not found");
+        });
+        Coalescer.Flight<String> error = coalescer.run(8, () -> {
+            throw new StackOverflowError();
+        });
+        Coalescer.Flight<String> notStarted = coalescer.start(9, () -> {
+            throw new IllegalStateException("Client closed");
+        });
+
+        assertThrows(PersistenceException.class, () -> Coalescer.join(failed.outcome(), PersistenceException.class));
+        assertThrows(StackOverflowError.class, () -> Coalescer.join(error.outcome(), PersistenceException.class));
+        assertThrows(IllegalStateException.class, () -> Coalescer.join(notStarted.outcome(), PersistenceException.class));
+        assertThat(coalescer.run(8, () -> "event 8").outcome()).isCompletedWithValue("event 8");
+        assertThat(coalescer.run(9, () -> "event 9").started()).isTrue();
+    }
+
+    @Test
+    public void aCallerWokenByTheOutcomeStartsANewCall() {
+        CompletableFuture<String> request = new CompletableFuture<>();
+        Coalescer.Flight<String> first = coalescer.start(7, () -> request);
+        CompletableFuture<Coalescer.Flight<String>> askedAgain = first.outcome()
+                .thenApply(value -> coalescer.run(7, () -> "fresh"));
+
+        request.complete("stale");
+
+        assertThat(askedAgain.join().outcome()).isCompletedWithValue("fresh");
+    }
+}
@@ -0,0 +1,140 @@
+package io.persistence;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.datarecords.MonoBankDeposit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * {@link DepositRepository} against a stub of the bank's statement API on a local port.
+ */
+public class DepositRepositoryTest {
+    private static final Instant FROM = Instant.parse("2025-01-01T12:00:00Z");
+    private static final Instant TO = FROM.plusSeconds(600);
+    private static final String STATEMENT = """
+            [{"id":"ZuHWzqkKGVo=","time":1735732900,"description":"Від: Шевченко Тарас","mcc":4829,
+              "hold":false,"amount":125050,"cashbackAmount":0,"balance":1000000,
+              "counterIban":"UA123","details":{"id":"nested","amount":1}},
+             {"id":"tx2","time":1735732800,"amount":-3000,"comment":"no description"}]""";
+
+    private HttpServer bank;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile Handler handler;
+    private DepositRepository repository;
+
+    private interface Handler {
+        void handle(HttpExchange exchange) throws IOException;
+    }
+
+    @BeforeEach
+    public void startBank() throws IOException {
+        bank = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        bank.setExecutor(Executors.newCachedThreadPool());
+        bank.createContext("/personal/statement/0/", exchange -> {
+            requests.incrementAndGet();
+            handler.handle(exchange);
+        });
+        bank.start();
+        repository = new DepositRepository("http://localhost:" + bank.getAddress().getPort(), "token",
+                Duration.ofSeconds(1), Duration.ofMillis(500));
+    }
+
+    @AfterEach
+    public void stopBank() {
+        repository.close();
+        bank.stop(0);
+    }
+
+    /** Sends {@code body} in small chunks, splitting tokens and multi-byte characters between them. */
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            for (int i = 0; i < bytes.length; i += 7) {
+                out.write(bytes, i, Math.min(7, bytes.length - i));
+                out.flush();
+            }
+        }
+    }
+
+    @Test
+    public void getStatement_streamsTheTransactionsOutOfAChunkedResponse() throws PersistenceException {
+        handler = exchange -> respond(exchange, 200, STATEMENT);
+
+        List<MonoBankDeposit> statement = repository.getStatement(FROM, TO);
+
+        assertThat(statement).containsExactly(
+                new MonoBankDeposit("ZuHWzqkKGVo=", 1250.5, "Від: Шевченко Тарас", Instant.ofEpochSecond(1735732900)),
+                new MonoBankDeposit("tx2", -30.0, "N/A", Instant.ofEpochSecond(1735732800)));
+    }
+
+    @Test
+    public void fetchStatement_concurrentCallersShareOneRequest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        handler = exchange -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 200, STATEMENT);
+        };
+
+        List<CompletableFuture<List<MonoBankDeposit>>> callers = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            callers.add(repository.fetchStatement(FROM, TO));
+        }
+        callers.get(0).cancel(false);
+        release.countDown();
+
+        for (CompletableFuture<List<MonoBankDeposit>> caller : callers.subList(1, callers.size())) {
+            assertThat(caller.get(5, TimeUnit.SECONDS)).hasSize(2);
+        }
+        assertThat(requests.get()).isEqualTo(1);
+
+        repository.getStatement(FROM, TO);
+        assertThat(requests.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void getStatement_reportsErrorResponsesAndTimeouts() {
+        handler = exchange -> respond(exchange, 429, "{\"errorDescription\":\"Too many requests\"}");
+
+        assertThatThrownBy(() -> repository.getStatement(FROM, TO))
+                .isInstanceOf(PersistenceException.class)
+                .hasMessageContaining("429")
+                .hasMessageContaining("Too many requests");
+
+        CountDownLatch never = new CountDownLatch(1);
+        handler = exchange -> {
+            try {
+                never.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        assertThatThrownBy(() -> repository.getStatement(FROM, TO))
+                .isInstanceOf(PersistenceException.class)
+                .hasMessageContaining("Statement not gathered");
+        never.countDown();
+    }
+}
@@ -0,0 +1,83 @@
+package io.persistence;
+
+import io.datarecords.Event;
+import io.datarecords.EventCursor;
+import io.datarecords.EventFilter;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EventRepositoryTest {
+
+    /** Joined rows for {@code events} events with three actions each, plus one event without actions. */
+    private static List<Map<String, Object>> rows(int events) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int eventId = 1; eventId <= events + 1; eventId++) {
+            boolean withActions = eventId <= events;
+            for (int i = 0; i < (withActions ? 3 : 1); i++) {
+                rows.add(FakeJdbc.eventRow(eventId, withActions ? eventId * 10 + i : null));
+            }
+        }
+        return rows;
+    }
+
+    @Test
+    public void getAll_loadsEventsAndActionsInOneQuery() throws PersistenceException {
+        FakeJdbc jdbc = new FakeJdbc(rows(1_000));
+
+        List<Event> events = new EventRepository(jdbc.dataSource()).getAll();
+
+        assertThat(jdbc.executedQueries()).isEqualTo(1);
+        assertThat(events).hasSize(1_001);
+        assertThat(events.get(0).actions()).extracting("actionId").containsExactly(10, 11, 12);
+        assertThat(events.get(1_000).actions()).isEmpty();
+    }
+
+    @Test
+    public void findPage_filtersAndSeeksPastTheCursorNewestFirst() throws PersistenceException {
+        FakeJdbc jdbc = new FakeJdbc(List.of());
+        LocalDateTime created = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+        new EventRepository(jdbc.dataSource()).findPage(new EventFilter(true, false, null, "alice", null, true),
+                new EventCursor(created, 5), 21, false);
+
+        FakeJdbc.Executed page = jdbc.executed().get(0);
+        assertThat(page.sql()).contains("e.isOpen = ?", "e.isFinished = ?", "e.creator = ?",
+                "(e.timeCreated, e.eventId) < (?, ?)", "ORDER BY e.timeCreated DESC, e.eventId DESC");
+        assertThat(page.sql()).doesNotContain("e.isPublic = ?", "ILIKE", "actions");
+        // Events created at the same time as the cursor's are continued by eventId, not skipped.
+        assertThat(page.parameters()).containsExactly(true, false, "alice", Timestamp.valueOf(created), 5, 21);
+    }
+
+    @Test
+    public void findPage_oldestFirstSeeksForwardAndReadsActionsInTheSameQuery() throws PersistenceException {
+        FakeJdbc jdbc = new FakeJdbc(rows(2));
+
+        List<Event> events = new EventRepository(jdbc.dataSource()).findPage(
+                new EventFilter(null, null, null, null, null, false), new EventCursor(LocalDateTime.of(2025, 1, 1, 12, 0), 5), 3, true);
+
+        FakeJdbc.Executed page = jdbc.executed().get(0);
+        assertThat(jdbc.executedQueries()).isEqualTo(1);
+        assertThat(page.sql()).contains("(e.timeCreated, e.eventId) > (?, ?)", "ORDER BY e.timeCreated ASC, e.eventId ASC",
+                "LEFT JOIN actions a");
+        assertThat(page.parameters()).endsWith(3);
+        assertThat(events).extracting(Event::eventId).containsExactly(1, 2, 3);
+        assertThat(events.get(0).actions()).extracting("actionId").containsExactly(10, 11, 12);
+    }
+
+    @Test
+    public void findPage_firstPageHasNoConditions() throws PersistenceException {
+        FakeJdbc jdbc = new FakeJdbc(List.of());
+
+        new EventRepository(jdbc.dataSource()).findPage(new EventFilter(null, null, null, " ", null, true), null, 21, false);
+
+        assertThat(jdbc.executed().get(0).sql()).doesNotContain("WHERE");
+        assertThat(jdbc.executed().get(0).parameters()).containsExactly(21);
+    }
+}
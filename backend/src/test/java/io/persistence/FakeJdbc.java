@@ -0,0 +1,160 @@
+package io.persistence;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Minimal in-memory JDBC driver for repository tests: every executed query returns the same canned
+ * rows, {@link #executedQueries()} tells how many statements the code under test executed and
+ * {@link #executed()} what they were.
+ */
+class FakeJdbc {
+    private static final Timestamp CREATED = Timestamp.valueOf("2025-01-01 12:00:00");
+
+    private final List<Map<String, Object>> rows;
+    private final AtomicInteger executedQueries = new AtomicInteger();
+    private final List<Executed> executed = new CopyOnWriteArrayList<>();
+
+    /** A statement as it was executed, with its parameters in order. */
+    record Executed(String sql, List<Object> parameters) { }
+
+    FakeJdbc(List<Map<String, Object>> rows) {
+        this.rows = rows;
+    }
+
+    int executedQueries() {
+        return executedQueries.get();
+    }
+
+    List<Executed> executed() {
+        return executed;
+    }
+
+    DataSource dataSource() {
+        return proxy(DataSource.class, (p, method, args) -> switch (method.getName()) {
+            case "getConnection" -> connection();
+            default -> defaultValue(method.getReturnType());
+        });
+    }
+
+    static Map<String, Object> row(Object... columnsAndValues) {
+        Map<String, Object> row = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (int i = 0; i < columnsAndValues.length; i += 2) {
+            row.put((String) columnsAndValues[i], columnsAndValues[i + 1]);
+        }
+        return row;
+    }
+
+    /**
+     * A row of the events-with-actions join: event {@code eventId}, created at noon on 1 January 2025,
+     * with action {@code actionId}, or without actions when that is {@code null}.
+     */
+    static Map<String, Object> eventRow(int eventId, Integer actionId) {
+        return row(
+                "event", "Event " + eventId, "eventId", eventId, "budget", 1000.0, "stakeLimit", 100.0,
+                "playerLimit", 10, "isOpen", true, "isFinished", false, "isPublic", true,
+                "creator", "creator", "password", "", "initialbudget", 1000.0,
+                "timeCreated", CREATED, "timeFinished", null,
+                "actionId", actionId, "action", actionId == null ? null : "Action " + actionId,
+                "coefficient", actionId == null ? null : 2.0);
+    }
+
+    /** An {@link #eventRow} joined with an open bet of 10 by {@code username} on that action. */
+    static Map<String, Object> participationRow(int eventId, int actionId, String username) {
+        Map<String, Object> row = eventRow(eventId, actionId);
+        row.putAll(row(
+                "username", username, "stake", 10.0, "potentialWin", 20.0, "hasWon", null,
+                "userEmail", "user@example.com", "userIsVerified", false, "userBalance", 50.0,
+                "userPassword", "hash"));
+        return row;
+    }
+
+    private Connection connection() {
+        return proxy(Connection.class, (p, method, args) -> switch (method.getName()) {
+            case "prepareStatement" -> statement((String) args[0]);
+            default -> defaultValue(method.getReturnType());
+        });
+    }
+
+    private PreparedStatement statement(String sql) {
+        Map<Integer, Object> parameters = new TreeMap<>();
+        return proxy(PreparedStatement.class, (p, method, args) -> {
+            if (method.getName().startsWith("set") && args != null && args.length == 2 && args[0] instanceof Integer index) {
+                parameters.put(index, args[1]);
+                return null;
+            }
+            return switch (method.getName()) {
+                case "executeQuery" -> {
+                    executedQueries.incrementAndGet();
+                    executed.add(new Executed(sql, new ArrayList<>(parameters.values())));
+                    yield resultSet();
+                }
+                case "executeUpdate" -> {
+                    executedQueries.incrementAndGet();
+                    executed.add(new Executed(sql, new ArrayList<>(parameters.values())));
+                    yield 1;
+                }
+                default -> defaultValue(method.getReturnType());
+            };
+        });
+    }
+
+    private ResultSet resultSet() {
+        Iterator<Map<String, Object>> cursor = rows.iterator();
+        Object[] current = new Object[1];
+        Object[] lastValue = new Object[1];
+        return proxy(ResultSet.class, (p, method, args) -> {
+            switch (method.getName()) {
+                case "next":
+                    current[0] = cursor.hasNext() ? cursor.next() : null;
+                    return current[0] != null;
+                case "wasNull":
+                    return lastValue[0] == null;
+                case "close":
+                    return null;
+                default:
+                    @SuppressWarnings("unchecked")
+                    Map<String, Object> row = (Map<String, Object>) current[0];
+                    Object value = row.get((String) args[0]);
+                    lastValue[0] = value;
+                    return switch (method.getName()) {
+                        case "getInt" -> value == null ? 0 : ((Number) value).intValue();
+                        case "getDouble" -> value == null ? 0.0 : ((Number) value).doubleValue();
+                        case "getBoolean" -> value != null && (Boolean) value;
+                        case "getTimestamp" -> (Timestamp) value;
+                        default -> value;
+                    };
+            }
+        });
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(FakeJdbc.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+}
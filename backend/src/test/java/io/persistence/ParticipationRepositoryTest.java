@@ -0,0 +1,67 @@
+package io.persistence;
+
+import io.datarecords.Participation;
+import io.datarecords.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ParticipationRepositoryTest {
+    private static final int USERS = 50;
+    private static final int EVENTS = 20;
+    private static final int ACTIONS_PER_EVENT = 3;
+
+    /**
+     * One row per bet, laid out the way the join returns them: ordered by event then action, with
+     * bettors cycling through a fixed pool of users.
+     */
+    private static List<Map<String, Object>> rows(int participations) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < participations; i++) {
+            int eventId = i * EVENTS / participations + 1;
+            int actionId = eventId * ACTIONS_PER_EVENT + i % ACTIONS_PER_EVENT;
+            rows.add(FakeJdbc.participationRow(eventId, actionId, "user" + i % USERS));
+        }
+        return rows;
+    }
+
+    @Test
+    public void getAll_issuesOneQueryRegardlessOfRowCount() throws PersistenceException {
+        for (int participations : new int[]{100, 1_000, 10_000}) {
+            FakeJdbc jdbc = new FakeJdbc(rows(participations));
+
+            List<Participation> result = new ParticipationRepository(jdbc.dataSource()).getAll();
+
+            assertThat(result).hasSize(participations);
+            assertThat(jdbc.executedQueries()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    public void getAll_sharesUsersEventsAndActionsBetweenParticipations() throws PersistenceException {
+        FakeJdbc jdbc = new FakeJdbc(rows(1_000));
+
+        List<Participation> result = new ParticipationRepository(jdbc.dataSource()).getAll();
+
+        assertThat(result.stream().map(Participation::user).distinct()).hasSize(USERS);
+        assertThat(result.stream().map(p -> p.action().event()).distinct()).hasSize(EVENTS);
+        assertThat(result.get(0).user()).isSameAs(result.get(USERS).user());
+        assertThat(result.get(0).action().event().actions()).hasSize(ACTIONS_PER_EVENT);
+    }
+
+    @Test
+    public void findByUsername_isOneQuerySharingEventsBetweenBets() throws PersistenceException {
+        FakeJdbc jdbc = new FakeJdbc(rows(600));
+        User user = new User("user0", "user@example.com", false, 50.0, null);
+
+        List<Participation> result = new ParticipationRepository(jdbc.dataSource()).findByUsername(user, null, 600);
+
+        assertThat(jdbc.executedQueries()).isEqualTo(1);
+        assertThat(result).hasSize(600).allSatisfy(p -> assertThat(p.user()).isSameAs(user));
+        assertThat(result.stream().map(p -> p.action().event()).distinct()).hasSize(EVENTS);
+    }
+}
@@ -0,0 +1,111 @@
+package io.persistence;
+
+import io.datarecords.SettlementSummary;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Settlement throughput against the database configured in {@code db.properties}. Every run seeds its
+ * own creator, bettors, event and participations and deletes them again afterwards.
+ *
+ * Run with {@code mvn test -Dtest=SettlementBenchmarkTest -Dsettlement.benchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "settlement.benchmark", matches = "true")
+public class SettlementBenchmarkTest {
+
+    @ParameterizedTest
+    @ValueSource(ints = {10_000, 50_000, 100_000})
+    public void settle(int participations) throws Exception {
+        String prefix = "bench" + System.nanoTime() + "_";
+        int eventId = seed(prefix, participations);
+        try {
+            long start = System.nanoTime();
+            SettlementSummary summary = new EventRepository(DBConnect.getDataSource()).setFinished(eventId, "A");
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+            System.out.printf("settled %,d participations in %,d ms (%,.0f participations/s): %s%n",
+                    participations, elapsedMs, participations * 1000.0 / Math.max(elapsedMs, 1), summary);
+            assertThat(summary.winningBets() + summary.losingBets()).isEqualTo(participations);
+            assertThat(summary.usersCredited()).isEqualTo(participations + 1);
+        } finally {
+            cleanUp(prefix, eventId);
+        }
+    }
+
+    /** One bettor per participation, spread over three actions; returns the new eventId. */
+    private static int seed(String prefix, int participations) throws SQLException {
+        try (Connection con = DBConnect.getConnection()) {
+            con.setAutoCommit(false);
+            try (PreparedStatement users = con.prepareStatement("""
+                         INSERT INTO users (username, email, balance)
+                         SELECT ? || i, 'bench@example.com', 1000 FROM generate_series(0, ?) i
+                         """);
+                 PreparedStatement event = con.prepareStatement("""
+                         INSERT INTO events (event, budget, stakeLimit, playerLimit, isOpen, isFinished, isPublic,
+                                             creator, initialbudget)
+                         VALUES (?, 1000000, 100, ?, true, false, true, ? || 0, 1000000)
+                         RETURNING eventId
+                         """);
+                 PreparedStatement actions = con.prepareStatement("""
+                         INSERT INTO actions (action, coefficient, eventId)
+                         SELECT a, 2.5, ? FROM unnest(ARRAY['A', 'B', 'C']) a
+                         """);
+                 PreparedStatement bets = con.prepareStatement("""
+                         INSERT INTO participations (actionId, username, stake, potentialWin)
+                         SELECT a.actionId, ? || i, 10, 25
+                         FROM generate_series(1, ?) i
+                         JOIN actions a ON a.eventId = ? AND a.action = (ARRAY['A', 'B', 'C'])[i % 3 + 1]
+                         """)) {
+                users.setString(1, prefix);
+                users.setInt(2, participations);
+                users.executeUpdate();
+                event.setString(1, prefix + "event");
+                event.setInt(2, participations);
+                event.setString(3, prefix);
+                int eventId;
+                try (ResultSet rs = event.executeQuery()) {
+                    rs.next();
+                    eventId = rs.getInt(1);
+                }
+                actions.setInt(1, eventId);
+                actions.executeUpdate();
+                bets.setString(1, prefix);
+                bets.setInt(2, participations);
+                bets.setInt(3, eventId);
+                bets.executeUpdate();
+                con.commit();
+                try (Statement analyze = con.createStatement()) {
+                    analyze.execute("ANALYZE participations");
+                }
+                con.commit();
+                return eventId;
+            } catch (SQLException e) {
+                con.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private static void cleanUp(String prefix, int eventId) throws SQLException {
+        try (Connection con = DBConnect.getConnection()) {
+            con.setAutoCommit(false);
+            try (Statement stm = con.createStatement()) {
+                stm.executeUpdate("DELETE FROM participations WHERE actionId IN (SELECT actionId FROM actions WHERE eventId = " + eventId + ")");
+                stm.executeUpdate("DELETE FROM action_totals WHERE actionId IN (SELECT actionId FROM actions WHERE eventId = " + eventId + ")");
+                stm.executeUpdate("DELETE FROM actions WHERE eventId = " + eventId);
+                stm.executeUpdate("DELETE FROM events WHERE eventId = " + eventId);
+                stm.executeUpdate("DELETE FROM users WHERE username LIKE '" + prefix + "%'");
+                con.commit();
+            }
+        }
+    }
+}
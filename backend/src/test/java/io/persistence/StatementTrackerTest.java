@@ -0,0 +1,64 @@
+package io.persistence;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class StatementTrackerTest {
+
+    private static List<Map<String, Object>> rows(int count) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(FakeJdbc.participationRow(1, i % 3 + 1, "user" + i));
+        }
+        return rows;
+    }
+
+    @Test
+    public void singleQueryLoadStaysWithinBudget() throws PersistenceException {
+        InstrumentedDataSource dataSource = new InstrumentedDataSource(new FakeJdbc(rows(500)).dataSource());
+
+        try (StatementTracker.Tracking tracking = StatementTracker.start()) {
+            new ParticipationRepository(dataSource).getAll();
+
+            StatementReport report = tracking.report();
+            assertThat(report.statements()).isEqualTo(1);
+            assertThat(report.rows()).isEqualTo(500);
+            report.checkBudget(1, 1);
+        }
+    }
+
+    @Test
+    public void queryPerItemIsReportedAndFailsTheBudget() throws PersistenceException {
+        InstrumentedDataSource dataSource = new InstrumentedDataSource(new FakeJdbc(rows(3)).dataSource());
+        EventRepository repository = new EventRepository(dataSource);
+
+        try (StatementTracker.Tracking tracking = StatementTracker.start()) {
+            for (int eventId = 1; eventId <= 20; eventId++) {
+                repository.findEventById(eventId);
+            }
+
+            StatementReport report = tracking.report();
+            assertThat(report.repeated(10)).hasSize(1).containsValue(20);
+            assertThatThrownBy(() -> report.checkBudget(5, 10))
+                    .isInstanceOf(StatementBudgetExceededException.class)
+                    .hasMessageContaining("Executed 20 statements");
+        }
+    }
+
+    @Test
+    public void shapesIgnoreLiteralsAndNothingIsRecordedOutsideATracking() {
+        assertThat(StatementTracker.shape("SELECT * FROM users WHERE id = 42 AND name = 'bob'"))
+                .isEqualTo(StatementTracker.shape("SELECT *  FROM users\n WHERE id = 7 AND name = 'o''neil'"));
+
+        StatementTracker.executed("SELECT 1");
+        try (StatementTracker.Tracking tracking = StatementTracker.start()) {
+            assertThat(tracking.report().statements()).isZero();
+        }
+    }
+}
@@ -39,17 +39,15 @@ export default function Navbar() {
             setIsLoggedIn(false);
         }
     };
-    const checkDeposits = async () => {
+    // Deposits and withdrawals are ingested by the backend and pushed over the balance stream below;
+    // this only refreshes the stored session once when the page loads.
+    const refreshSession = async () => {
         const userStr = sessionStorage.getItem("loggedInUser");
         if (!userStr) return;
         const user = JSON.parse(userStr);
         const username = user.username;
 
         try {
-            await fetch("http://localhost:8080/api/deposit", { method: "PATCH" });
-
-            await fetch("http://localhost:8080/api/withdraw", { method: "PATCH" });
-
             const userRes = await fetch(`http://localhost:8080/api/sessionUpdate?username=${username}`);
             if (!userRes.ok) {
                 console.warn("Failed to fetch updated user session");
@@ -61,21 +59,28 @@ export default function Navbar() {
             setUsername(userData.username);
             sessionStorage.setItem("loggedInUser", JSON.stringify(userData));
         } catch (error) {
-            console.error("Error during deposit/withdrawal update:", error);
+            console.error("Error during session refresh:", error);
         }
     };
     useEffect(() => {
         checkUserSession();
-        checkDeposits();
-
-        const interval = setInterval(() => {
-            checkUserSession();
-            checkDeposits();
-        }, 70000);
-
-        return () => clearInterval(interval);
+        refreshSession();
     }, []);
 
+    useEffect(() => {
+        if (!isLoggedIn || !username) return;
+        const source = new EventSource(`http://localhost:8080/api/users/${encodeURIComponent(username)}/stream`);
+        source.addEventListener("balance", (e) => {
+            const { balance } = JSON.parse(e.data);
+            setBalance(parseFloat(balance).toFixed(2));
+            const userStr = sessionStorage.getItem("loggedInUser");
+            if (userStr) {
+                sessionStorage.setItem("loggedInUser", JSON.stringify({ ...JSON.parse(userStr), balance }));
+            }
+        });
+        return () => source.close();
+    }, [isLoggedIn, username]);
+
     const handleLogout = () => {
         sessionStorage.removeItem("loggedInUser");
         sessionStorage.removeItem("loggedUsername");
@@ -38,6 +38,27 @@ export default function Event() {
             });
     }, [eventId]);
 
+    useEffect(() => {
+        if (!eventId) return;
+        const source = new EventSource(`http://localhost:8080/api/events/${eventId}/stream`);
+        source.addEventListener("coefficient", (e) => {
+            const { actionId, coefficient } = JSON.parse(e.data);
+            setEvent((prev) => prev && {
+                ...prev,
+                actions: prev.actions.map((a) => (a.actionId === actionId ? { ...a, coefficient } : a)),
+            });
+        });
+        source.addEventListener("budget", (e) => {
+            const { budget } = JSON.parse(e.data);
+            setEvent((prev) => prev && { ...prev, budget });
+        });
+        source.addEventListener("state", (e) => {
+            const { isOpen, isFinished, isPublic } = JSON.parse(e.data);
+            setEvent((prev) => prev && { ...prev, isOpen, isFinished, isPublic });
+        });
+        return () => source.close();
+    }, [eventId]);
+
     const handleAction = async (actionFn, successMsg, errorMsg) => {
         setError("");
         setSuccessMessage("");
@@ -59,7 +80,7 @@ export default function Event() {
                         method: "PATCH",
                     }
                 ),
-            "Event marked as finished!",
+            "Settlement queued, the event finishes shortly.",
             "Failed to mark event as finished."
         );
     };
@@ -143,10 +164,6 @@ export default function Event() {
             } else {
                 setSuccessMessage("Participation added successfully!");
             }
-
-            fetch(`http://localhost:8080/api/events/${eventId}`)
-                .then((res) => res.json())
-                .then((data) => setEvent(data));
         } catch (err) {
             console.error("Join error:", err);
             setError(err.message || "Error joining event.");
@@ -24,29 +24,46 @@ export default function EventAnalysis() {
 
     const isCreator = sessionUser?.username === creatorUsername;
 
-    useEffect(() => {
-        const fetchAnalysis = async () => {
-            try {
-                const res = await fetch(`http://localhost:8080/api/events/${id}/analysis`);
-                if (!res.ok) throw new Error("Failed to load event analysis");
-                const [participations] = await res.json();
-                setParticipations(participations);
-
-                const allActions = participations.map(p => p.action);
-                const uniqueActions = Array.from(
-                    new Map(allActions.map(a => [a.actionId, a])).values()
-                );
-                setCurrentActions(uniqueActions);
-
-                if (participations.length > 0) {
-                    setCreatorUsername(participations[0].action.event.creator);
-                }
-            } catch (err) {
-                setError(err.message);
+    const fetchSuggested = () =>
+        fetch(`http://localhost:8080/api/events/${id}/suggested`)
+            .then(res => res.json())
+            .then(data => {
+                const coeffMap = {};
+                data.forEach(a => {
+                    coeffMap[a.actionId] = a.coefficient.toFixed(2);
+                });
+                setSuggested(data);
+                setCoefficients(coeffMap);
+                setLoading(false);
+            })
+            .catch(err => {
+                setError("Failed to load suggested actions");
                 setLoading(false);
+            });
+
+    const fetchAnalysis = async () => {
+        try {
+            const res = await fetch(`http://localhost:8080/api/events/${id}/analysis`);
+            if (!res.ok) throw new Error("Failed to load event analysis");
+            const [participations] = await res.json();
+            setParticipations(participations);
+
+            const allActions = participations.map(p => p.action);
+            const uniqueActions = Array.from(
+                new Map(allActions.map(a => [a.actionId, a])).values()
+            );
+            setCurrentActions(uniqueActions);
+
+            if (participations.length > 0) {
+                setCreatorUsername(participations[0].action.event.creator);
             }
-        };
+        } catch (err) {
+            setError(err.message);
+            setLoading(false);
+        }
+    };
 
+    useEffect(() => {
         fetchAnalysis();
     }, [id]);
 
@@ -55,25 +72,22 @@ export default function EventAnalysis() {
             if (sessionUser?.username !== creatorUsername) {
                 navigate(`/events/${id}`);
             } else {
-                fetch(`http://localhost:8080/api/events/${id}/suggested`)
-                    .then(res => res.json())
-                    .then(data => {
-                        const coeffMap = {};
-                        data.forEach(a => {
-                            coeffMap[a.actionId] = a.coefficient.toFixed(2);
-                        });
-                        setSuggested(data);
-                        setCoefficients(coeffMap);
-                        setLoading(false);
-                    })
-                    .catch(err => {
-                        setError("Failed to load suggested actions");
-                        setLoading(false);
-                    });
+                fetchSuggested();
             }
         }
     }, [creatorUsername]);
 
+    useEffect(() => {
+        if (!isCreator) return;
+        // Every new bet moves the budget; reload the bets and the suggestions only then.
+        const source = new EventSource(`http://localhost:8080/api/events/${id}/stream`);
+        source.addEventListener("budget", () => {
+            fetchAnalysis();
+            fetchSuggested();
+        });
+        return () => source.close();
+    }, [id, isCreator]);
+
     const handleCoefficientChange = (actionId, newValue) => {
         setCoefficients(prev => ({
             ...prev,
@@ -1,9 +1,11 @@
 import React, { useEffect, useState } from "react";
 import { Link } from "react-router-dom";
 
+const PAGE_SIZE = 30;
+
 const HomePage = () => {
     const [events, setEvents] = useState([]);
-    const [filteredEvents, setFilteredEvents] = useState([]);
+    const [nextCursor, setNextCursor] = useState(null);
     const [searchTerm, setSearchTerm] = useState("");
     const [filters, setFilters] = useState({
         isPublic: "",
@@ -13,54 +15,39 @@ const HomePage = () => {
     const [loading, setLoading] = useState(true);
     const [error, setError] = useState("");
 
-    useEffect(() => {
+    const buildQuery = (cursor) => {
+        const params = new URLSearchParams({ size: String(PAGE_SIZE) });
+        if (searchTerm) params.set("search", searchTerm);
+        if (filters.isPublic !== "") params.set("public", filters.isPublic);
+        if (filters.isOpen !== "") params.set("open", filters.isOpen);
+        if (filters.isFinished !== "") params.set("finished", filters.isFinished);
+        if (cursor) params.set("cursor", cursor);
+        return params.toString();
+    };
+
+    const loadPage = (cursor) => {
         setLoading(true);
         setError("");
-        fetch("http://localhost:8080/api/events")
+        return fetch(`http://localhost:8080/api/events/page?${buildQuery(cursor)}`)
             .then((res) => {
                 if (!res.ok) throw new Error("Failed to fetch events");
                 return res.json();
             })
             .then((data) => {
-                setEvents(data);
-                setFilteredEvents(data);
+                setEvents((prev) => (cursor ? [...prev, ...data.events] : data.events));
+                setNextCursor(data.nextCursor);
             })
             .catch((err) => {
                 console.error("Error fetching events:", err);
                 setError("Failed to load events. Please try again later.");
             })
             .finally(() => setLoading(false));
-    }, []);
+    };
 
     useEffect(() => {
-        let filtered = [...events];
-
-        if (searchTerm) {
-            filtered = filtered.filter((e) =>
-                e.event.toLowerCase().includes(searchTerm.toLowerCase())
-            );
-        }
-
-        if (filters.isPublic !== "") {
-            filtered = filtered.filter(
-                (e) => e.isPublic === (filters.isPublic === "true")
-            );
-        }
-
-        if (filters.isOpen !== "") {
-            filtered = filtered.filter(
-                (e) => e.isOpen === (filters.isOpen === "true")
-            );
-        }
-
-        if (filters.isFinished !== "") {
-            filtered = filtered.filter(
-                (e) => e.isFinished === (filters.isFinished === "true")
-            );
-        }
-
-        setFilteredEvents(filtered);
-    }, [searchTerm, filters, events]);
+        const timeout = setTimeout(() => loadPage(null), 250);
+        return () => clearTimeout(timeout);
+    }, [searchTerm, filters]);
 
     const handleFilterChange = (e) => {
         const { name, value } = e.target;
@@ -128,13 +115,13 @@ const HomePage = () => {
                     </select>
                 </div>
 
-                {loading ? (
+                {loading && events.length === 0 ? (
                     <p className="text-zinc-300 text-center text-lg">Loading events...</p>
-                ) : filteredEvents.length === 0 ? (
+                ) : events.length === 0 ? (
                     <p className="text-zinc-300 text-center text-lg">No events found.</p>
                 ) : (
                     <div className="grid grid-cols-1 md:grid-cols-2 lg:grid-cols-3 gap-6">
-                        {filteredEvents.map((event) => (
+                        {events.map((event) => (
                             <Link
                                 to={`/events/${event.eventId}`}
                                 key={event.eventId}
@@ -194,6 +181,18 @@ const HomePage = () => {
                         ))}
                     </div>
                 )}
+
+                {nextCursor && (
+                    <div className="flex justify-center">
+                        <button
+                            onClick={() => loadPage(nextCursor)}
+                            disabled={loading}
+                            className="px-6 py-3 rounded-lg bg-blue-600 text-white font-semibold hover:bg-blue-700 disabled:opacity-50"
+                        >
+                            {loading ? "Loading..." : "Load more"}
+                        </button>
+                    </div>
+                )}
             </div>
         </div>
     );
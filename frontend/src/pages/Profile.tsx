@@ -8,6 +8,8 @@ export default function Profile() {
     const [user, setUser] = useState(null);
     const [participations, setParticipations] = useState([]);
     const [createdEvents, setCreatedEvents] = useState([]);
+    const [participationsCursor, setParticipationsCursor] = useState(null);
+    const [eventsCursor, setEventsCursor] = useState(null);
     const [error, setError] = useState("");
     const [sessionUsername, setSessionUsername] = useState("");
 
@@ -25,15 +27,13 @@ export default function Profile() {
             console.error("Failed to parse logged-in user.");
         }
 
-        fetch(`http://localhost:8080/api/users/${username}`)
-            .then((res) => {
-                if (!res.ok) throw new Error("Failed to fetch user profile.");
-                return res.json();
-            })
-            .then(([userData, participationsData, createdEventsData]) => {
-                setUser(userData);
-                setParticipations(participationsData);
-                setCreatedEvents(createdEventsData);
+        fetchProfile("")
+            .then((profile) => {
+                setUser(profile.user);
+                setParticipations(profile.participations);
+                setParticipationsCursor(profile.participationsCursor);
+                setCreatedEvents(profile.createdEvents);
+                setEventsCursor(profile.createdEventsCursor);
             })
             .catch((err) => {
                 console.error(err);
@@ -41,6 +41,33 @@ export default function Profile() {
             });
     }, [username]);
 
+    // Both lists are paginated; a "Load more" asks for the next page of one list only.
+    const fetchProfile = (query) =>
+        fetch(`http://localhost:8080/api/users/${username}${query}`).then((res) => {
+            if (!res.ok) throw new Error("Failed to fetch user profile.");
+            return res.json();
+        });
+
+    const loadMoreParticipations = () => {
+        fetchProfile(`?participationsCursor=${encodeURIComponent(participationsCursor)}`)
+            .then((profile) => {
+                setParticipations((prev) => [...prev, ...profile.participations]);
+                setParticipationsCursor(profile.participationsCursor);
+            })
+            .catch((err) => console.error(err));
+    };
+
+    const loadMoreEvents = () => {
+        fetchProfile(`?eventsCursor=${encodeURIComponent(eventsCursor)}`)
+            .then((profile) => {
+                setCreatedEvents((prev) => [...prev, ...profile.createdEvents]);
+                setEventsCursor(profile.createdEventsCursor);
+            })
+            .catch((err) => console.error(err));
+    };
+
+    const loadMoreClass = "mt-4 bg-zinc-700 hover:bg-zinc-600 text-white px-4 py-2 rounded";
+
     const handleLogout = () => {
         sessionStorage.removeItem("loggedInUser");
         navigate("/login");
@@ -125,6 +152,11 @@ export default function Profile() {
                                 ))}
                                 </tbody>
                             </table>
+                            {participationsCursor && (
+                                <button onClick={loadMoreParticipations} className={loadMoreClass}>
+                                    Load more
+                                </button>
+                            )}
                         </div>
                     )}
                 </section>
@@ -204,6 +236,11 @@ export default function Profile() {
                                 })}
                                 </tbody>
                             </table>
+                            {eventsCursor && (
+                                <button onClick={loadMoreEvents} className={loadMoreClass}>
+                                    Load more
+                                </button>
+                            )}
                         </div>
                     )}
                 </section>
@@ -37,11 +37,10 @@ export default function VerificationForm() {
         setError("");
         setSuccess(false);
 
+        // BSN and phone number stay strings: leading zeros are significant.
         const payload = {
             username,
-            ...form,
-            bsn: parseInt(form.bsn),
-            phoneNumber: parseInt(form.phoneNumber)
+            ...form
         };
 
         try {
@@ -55,7 +54,27 @@ export default function VerificationForm() {
 
             if (!res.ok) {
                 const text = await res.text();
-                throw new Error(text);
+                let message = text;
+                try {
+                    message = JSON.parse(text).message || text;
+                } catch {
+                    // not a JSON error body
+                }
+                throw new Error(message);
+            }
+
+            // The data is encrypted and stored in the background; wait for the outcome.
+            let status = await res.json();
+            while (status.status !== "done" && status.status !== "failed") {
+                await new Promise((resolve) => setTimeout(resolve, 1000));
+                const statusRes = await fetch(`http://localhost:8080/api/verification/${status.id}`);
+                if (!statusRes.ok) {
+                    throw new Error("Could not retrieve the verification status.");
+                }
+                status = await statusRes.json();
+            }
+            if (status.status === "failed") {
+                throw new Error(status.error || "Verification could not be saved.");
             }
 
             setSuccess(true);